@@ -0,0 +1,158 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommandBinderTest {
+	
+	private enum Mode { FAST, SAFE }
+	
+	public static class Commands { //Public so a public lookup can bind it too
+		
+		@ConsoleCommand
+		public static void add(JConsole console, int a, @ConsoleCommand.Arg(value = "b", defaultValue = "2") long b) {
+			console.print("" + (a + b));
+		}
+		
+		@ConsoleCommand(name = "count")
+		public static void count(JConsole console, @ConsoleCommand.Arg(value = "n", min = 0) int n) {
+			console.print("count " + n);
+		}
+		
+		@ConsoleCommand
+		public static void scale(JConsole console, @ConsoleCommand.Arg(value = "factor", min = 1, max = 10) double factor) {
+			console.print("scale " + factor);
+		}
+		
+		@ConsoleCommand
+		public static void maybe(JConsole console, @ConsoleCommand.Arg(value = "n", optional = true) Integer n) {
+			console.print("maybe " + n);
+		}
+		
+		@ConsoleCommand
+		public static void join(JConsole console, String first, @ConsoleCommand.Arg("rest") String... rest) {
+			console.print(first + rest.length + String.join(",", rest));
+		}
+		
+		@ConsoleCommand
+		public static void six(JConsole console, int a, int b, int c, int d, int e) { //Six parameters, past the CallN interfaces
+			console.print("six " + (a + b + c + d + e));
+		}
+	}
+	
+	@ConsoleCommand
+	private static void mode(JConsole console, Mode mode, boolean flag) {
+		console.print(mode + " " + flag);
+	}
+	
+	private final StringBuilder printed = new StringBuilder();
+	private JConsole console;
+	
+	@Before
+	public void setUp() {
+		console = new JConsole(new ConsoleView() {
+			public void print(String text) { printed.append(text); }
+			public void clear() {}
+			public void close() {}
+			public void invoke(Runnable r) { r.run(); }
+		}, false);
+	}
+	
+	private String run(List<Command> commands, String... args) {
+		printed.setLength(0);
+		for (Command c : commands)
+			if (c.getCommand().equals(args[0])) {
+				c.perform(console, args);
+				return Ansi.strip(printed.toString());
+			}
+		throw new AssertionError(args[0] + " was not bound");
+	}
+	
+	private static Object call(List<Command> commands, String name) throws ReflectiveOperationException { //The spun CallN, null for the spread fallback
+		for (Command c : commands)
+			if (c.getCommand().equals(name)) {
+				Field action = Command.class.getDeclaredField("action");
+				action.setAccessible(true);
+				Object bound = action.get(c);
+				Field call = bound.getClass().getDeclaredField("call");
+				call.setAccessible(true);
+				return call.get(bound);
+			}
+		throw new AssertionError(name + " was not bound");
+	}
+	
+	@Test
+	public void convertsArguments() {
+		List<Command> commands = CommandBinder.bind(CommandBinderTest.class, MethodHandles.lookup());
+		assertEquals("SAFE true", run(commands, "mode", "safe", "on"));
+		assertEquals("FAST false", run(commands, "mode", "Fast", "0"));
+		assertEquals("\nBad argument 1 to \"mode\": \"slow\" is not one of fast, safe", run(commands, "mode", "slow", "on"));
+		assertEquals("\nBad argument 2 to \"mode\": \"maybe\" is not on or off", run(commands, "mode", "fast", "maybe"));
+		commands = CommandBinder.bind(Commands.class, MethodHandles.lookup());
+		assertEquals("\nBad argument 1 to \"add\": \"x\" is not a whole number", run(commands, "add", "x"));
+		assertEquals("scale 2.5", run(commands, "scale", "2.5"));
+	}
+	
+	@Test
+	public void defaultsAndOptionalArguments() {
+		List<Command> commands = CommandBinder.bind(Commands.class, MethodHandles.lookup());
+		assertEquals("3", run(commands, "add", "1"));
+		assertEquals("11", run(commands, "add", "1", "10"));
+		assertEquals("maybe null", run(commands, "maybe"));
+		assertEquals("maybe 4", run(commands, "maybe", "4"));
+		assertEquals("\nUsage: add <arg1> [b]", run(commands, "add"));
+		assertEquals("\nUsage: add <arg1> [b]", run(commands, "add", "1", "2", "3"));
+	}
+	
+	@Test
+	public void rangeErrorsNameTheArgumentAndTheBounds() {
+		List<Command> commands = CommandBinder.bind(Commands.class, MethodHandles.lookup());
+		assertEquals("count 7", run(commands, "count", "7"));
+		assertEquals("\nBad argument 1 to \"count\": -1 is not between 0 and 2147483647", run(commands, "count", "-1"));
+		assertEquals("\nBad argument 1 to \"count\": 99999999999 is not between 0 and 2147483647", run(commands, "count", "99999999999"));
+		assertEquals("\nBad argument 2 to \"add\": \"99999999999999999999\" is not a whole number", run(commands, "add", "1", "99999999999999999999"));
+		assertEquals("\nBad argument 1 to \"scale\": 11 is not between 1 and 10", run(commands, "scale", "11"));
+		assertEquals("\nBad argument 1 to \"scale\": NaN is not between 1 and 10", run(commands, "scale", "NaN"));
+	}
+	
+	@Test
+	public void restTakesTheRemainingArguments() {
+		List<Command> commands = CommandBinder.bind(Commands.class, MethodHandles.lookup());
+		assertEquals("a0", run(commands, "join", "a"));
+		assertEquals("a2b,c", run(commands, "join", "a", "b", "c"));
+		assertEquals("\nUsage: join <arg1> [rest...]", run(commands, "join"));
+	}
+	
+	@Test
+	public void spreadHandleWhenNoLambdaCanBeSpun() throws ReflectiveOperationException {
+		List<Command> full = CommandBinder.bind(Commands.class, MethodHandles.lookup());
+		assertNotNull(call(full, "add"));
+		assertNull(call(full, "six")); //Too many parameters
+		assertEquals("six 15", run(full, "six", "1", "2", "3", "4", "5"));
+		List<Command> open = CommandBinder.bind(Commands.class, MethodHandles.publicLookup()); //No private access, LambdaMetafactory refuses it
+		for (String name : new String[] {"add", "count", "maybe", "join", "six"})
+			assertNull(call(open, name));
+		assertEquals("3", run(open, "add", "1"));
+		assertEquals("maybe null", run(open, "maybe"));
+		assertEquals("a2b,c", run(open, "join", "a", "b", "c"));
+		assertEquals("\nBad argument 1 to \"count\": -1 is not between 0 and 2147483647", run(open, "count", "-1"));
+	}
+	
+	@Test
+	public void privateMethodsNeedAPrivateLookup() {
+		try {
+			CommandBinder.bind(CommandBinderTest.class, MethodHandles.publicLookup());
+			fail("A public lookup reached a private method");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
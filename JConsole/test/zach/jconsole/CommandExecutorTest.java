@@ -0,0 +1,54 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+public class CommandExecutorTest {
+	
+	private static Command command(String name) {
+		return new Command(name, new Action() {
+			public void perform(JConsole console, String[] args) {}
+		});
+	}
+	
+	private static JConsole console() {
+		return new JConsole(new ConsoleView() {
+			public void print(String text) {}
+			public void clear() {}
+			public void close() {}
+			public void invoke(Runnable r) { r.run(); }
+		}, false);
+	}
+	
+	@Test(timeout = 5000)
+	public void failedStageFailsThePipeline() throws InterruptedException {
+		Command ok = command("ok"), bad = new Command("bad", new Action() {
+			public void perform(JConsole console, String[] args) {
+				throw new IllegalStateException("bad");
+			}
+		});
+		JConsole console = console();
+		CommandHandle handle = console.getExecutor().submit(new Command[] {ok, bad, ok}, new String[][] {{"ok"}, {"bad"}, {"ok"}}, console, new Pipe());
+		handle.await();
+		assertTrue(handle.isFailed());
+		handle = console.getExecutor().submit(new Command[] {ok, ok}, new String[][] {{"ok"}, {"ok"}}, console, new Pipe());
+		handle.await();
+		assertFalse(handle.isFailed());
+	}
+	
+	@Test
+	public void pipelineOverTheLimitIsRejected() {
+		CommandExecutor executor = new CommandExecutor(Executors.newCachedThreadPool(), 2, 0);
+		Command c = command("c");
+		try {
+			executor.submit(new Command[] {c, c, c}, new String[][] {{"c"}, {"c"}, {"c"}}, null, new Pipe());
+			fail("Three stages ran on two permits");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CommandHistoryTest {
+	
+	@Rule
+	public TemporaryFolder dir = new TemporaryFolder();
+	
+	@Test
+	public void indexOnlyHoldsLiveEntries() {
+		CommandHistory history = new CommandHistory(100);
+		Random random = new Random(1);
+		for (int i = 0; i < 200000; i++)
+			history.add("cmd " + Integer.toString(random.nextInt(), 36) + " " + i);
+		Set<String> live = new HashSet<String>();
+		for (int id = 200000 - 100; id < 200000; id++) {
+			String line = history.get(id);
+			for (int i = 0; i + 3 <= line.length(); i++)
+				live.add(line.substring(i, i + 3));
+		}
+		assertEquals(100, history.size());
+		assertEquals(live.size(), history.indexSize());
+	}
+	
+	@Test
+	public void searchMatchesAScan() {
+		CommandHistory history = new CommandHistory(50);
+		Random random = new Random(2);
+		String[] words = {"echo", "stats", "run", "find", "color", "transcript"};
+		for (int i = 0; i < 5000; i++) {
+			history.add(words[random.nextInt(words.length)] + " " + random.nextInt(20) + " #" + i); //Never equal to the line before, so ids are i
+			for (String query : new String[] {"echo 1", "ats", "run 7", "ind 19", "ec", "nothing"}) {
+				int expected = -1;
+				for (int id = i; id >= 0 && history.get(id) != null; id--)
+					if (history.get(id).contains(query)) {
+						expected = id;
+						break;
+					}
+				assertEquals(query, expected, history.search(query));
+			}
+		}
+		assertTrue(history.indexSize() > 0);
+	}
+	
+	@Test
+	public void lineBreaksStayOutOfTheFile() throws IOException {
+		File file = dir.newFile("history");
+		CommandHistory history = new CommandHistory(100, file);
+		history.add("echo one");
+		history.add("echo two\necho three");
+		history.add("echo \\n four\r");
+		history.add("echo five");
+		assertEquals("echo two\necho three", history.get(1)); //Kept for this session
+		history.close();
+		history = new CommandHistory(100, file);
+		assertEquals(2, history.size());
+		assertEquals("echo one", history.get(0));
+		assertEquals("echo five", history.get(1));
+		history.close();
+	}
+	
+	@Test
+	public void addsAreFlushedTogether() throws IOException, InterruptedException {
+		File file = dir.newFile("history");
+		CommandHistory history = new CommandHistory(100, file);
+		for (int i = 0; i < 10; i++)
+			history.add("echo " + i);
+		assertEquals(0, file.length()); //Still buffered
+		long deadline = System.currentTimeMillis() + CommandHistory.FLUSH_DELAY + 5000;
+		while (file.length() == 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10);
+		assertEquals(10 * "echo 0\n".length(), file.length());
+		history.add("echo last");
+		history.close();
+		assertEquals(11 * "echo 0\n".length() + 3, file.length());
+	}
+}
@@ -0,0 +1,140 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class CommandRegistryTest {
+	
+	private static final int STABLE = 500, WRITERS = 4, READERS = 4, NAMES = 200, ROUNDS = 20000;
+	
+	private static Command command(String name) {
+		return new Command(name, new Action() {
+			public void perform(JConsole console, String[] args) {}
+		});
+	}
+	
+	private static String stable(int i) { return String.format("stable%03d", i); }
+	
+	@Test
+	public void concurrentWritesNeverShowReadersAPartialTrie() throws InterruptedException {
+		final CommandRegistry registry = new CommandRegistry();
+		for (int i = 0; i < STABLE; i++)
+			registry.add(command(stable(i)));
+		final List<Set<String>> owned = new ArrayList<Set<String>>(); //What each writer left registered, its names are its own
+		final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<Throwable>();
+		final CountDownLatch start = new CountDownLatch(1), writing = new CountDownLatch(WRITERS + 1);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int w = 0; w < WRITERS; w++) {
+			final int writer = w;
+			final Set<String> mine = new HashSet<String>();
+			owned.add(mine);
+			threads.add(new Thread(new Runnable() {
+				public void run() {
+					try {
+						Random random = new Random(writer);
+						start.await();
+						for (int i = 0; i < ROUNDS; i++) {
+							String name = "w" + writer + "_" + random.nextInt(NAMES);
+							if (mine.remove(name))
+								assertNotNull(registry.remove(name));
+							else {
+								assertEquals(null, registry.add(command(name)));
+								mine.add(name);
+							}
+						}
+					} catch (Throwable t) {
+						errors.add(t);
+					} finally {
+						writing.countDown();
+					}
+				}
+			}));
+		}
+		threads.add(new Thread(new Runnable() { //Swaps stable commands for new ones, a name must never go missing in between
+			public void run() {
+				try {
+					Random random = new Random(-1);
+					start.await();
+					for (int i = 0; i < ROUNDS; i++)
+						assertNotNull(registry.replace(command(stable(random.nextInt(STABLE)))));
+				} catch (Throwable t) {
+					errors.add(t);
+				} finally {
+					writing.countDown();
+				}
+			}
+		}));
+		for (int r = 0; r < READERS; r++) {
+			final int reader = r;
+			threads.add(new Thread(new Runnable() {
+				public void run() {
+					try {
+						Random random = new Random(100 + reader);
+						start.await();
+						do {
+							String name = stable(random.nextInt(STABLE));
+							Command c = registry.get(name, false);
+							if (c == null || !c.getCommand().equals(name))
+								fail("Lookup of " + name + " saw " + c);
+							String other = "w" + random.nextInt(WRITERS) + "_" + random.nextInt(NAMES);
+							c = registry.get(other, false);
+							if (c != null && !c.getCommand().equals(other))
+								fail("Lookup of " + other + " saw " + c.getCommand());
+							List<Command> stables = registry.complete("stable", false, Integer.MAX_VALUE);
+							assertEquals(STABLE, stables.size());
+							for (int i = 0; i < STABLE; i++)
+								assertEquals(stable(i), stables.get(i).getCommand());
+							String prefix = "w" + random.nextInt(WRITERS) + "_" + random.nextInt(10);
+							String last = "";
+							for (Command m : registry.complete(prefix, false, Integer.MAX_VALUE)) {
+								assertTrue(m.getCommand().startsWith(prefix));
+								assertTrue("Completions out of order or repeated", m.getCommand().compareTo(last) > 0);
+								last = m.getCommand();
+							}
+							int seen = 0;
+							for (Command m : registry)
+								if (m.getCommand().startsWith("stable"))
+									seen++;
+							assertEquals(STABLE, seen);
+						} while (writing.getCount() > 0);
+					} catch (Throwable t) {
+						errors.add(t);
+					}
+				}
+			}));
+		}
+		for (Thread t : threads)
+			t.start();
+		start.countDown();
+		for (Thread t : threads)
+			t.join();
+		if (!errors.isEmpty())
+			throw new AssertionError(errors.peek());
+		
+		Set<String> expected = new TreeSet<String>();
+		for (int i = 0; i < STABLE; i++)
+			expected.add(stable(i));
+		for (Set<String> mine : owned)
+			expected.addAll(mine);
+		Set<String> actual = new TreeSet<String>();
+		for (Command c : registry)
+			assertTrue("Listed twice: " + c.getCommand(), actual.add(c.getCommand()));
+		assertEquals(expected, actual);
+		assertEquals(expected.size(), registry.size());
+		for (String name : expected)
+			assertEquals(name, registry.get(name, false).getCommand());
+	}
+}
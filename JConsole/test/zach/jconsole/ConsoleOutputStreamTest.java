@@ -0,0 +1,64 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ConsoleOutputStreamTest {
+	
+	private final StringBuilder printed = new StringBuilder();
+	private final JConsole console = new JConsole(new ConsoleView() {
+		public synchronized void print(String text) { printed.append(text); }
+		public void clear() {}
+		public void close() {}
+		public void invoke(Runnable r) { r.run(); }
+	}, false);
+	
+	@Test
+	public void multiByteCharsSplitBetweenWrites() throws IOException {
+		String text = "é中😀 end";
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		ConsoleOutputStream out = new ConsoleOutputStream(new ConsoleWriter(console), StandardCharsets.UTF_8);
+		for (byte b : bytes)
+			out.write(new byte[] {b}, 0, 1); //Every char but the last is cut somewhere
+		out.flush();
+		assertEquals(text, printed.toString());
+	}
+	
+	@Test
+	public void splitAtEveryOffset() throws IOException {
+		String text = "aé中😀z";
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		for (int cut = 0; cut <= bytes.length; cut++) {
+			printed.setLength(0);
+			ConsoleOutputStream out = new ConsoleOutputStream(new ConsoleWriter(console), StandardCharsets.UTF_8);
+			out.write(bytes, 0, cut);
+			out.write(bytes, cut, bytes.length - cut);
+			out.flush();
+			assertEquals("cut at " + cut, text, printed.toString());
+		}
+	}
+	
+	@Test
+	public void singleByteWrites() throws IOException {
+		ConsoleOutputStream out = new ConsoleOutputStream(new ConsoleWriter(console), StandardCharsets.UTF_8);
+		for (byte b : "中\n".getBytes(StandardCharsets.UTF_8))
+			out.write(b);
+		out.flush();
+		assertEquals("中\n", printed.toString());
+	}
+	
+	@Test
+	public void truncatedCharIsReplacedOnClose() throws IOException {
+		byte[] bytes = "中".getBytes(StandardCharsets.UTF_8);
+		ConsoleOutputStream out = new ConsoleOutputStream(new ConsoleWriter(console), StandardCharsets.UTF_8);
+		out.write(bytes, 0, 2);
+		out.flush();
+		assertEquals("", printed.toString()); //Waits for the rest
+		out.close();
+		assertEquals("�", printed.toString());
+	}
+}
@@ -0,0 +1,126 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConsoleServerTest { //Talks to the server over a loopback socket the way a client would
+	
+	private JConsole console;
+	private ConsoleServer server;
+	private Socket socket;
+	
+	@Before
+	public void start() throws IOException {
+		ConsoleView silent = new ConsoleView() {
+			public void print(String text) {}
+			public void clear() {}
+			public void close() {}
+			public void invoke(Runnable r) { r.run(); }
+		};
+		console = new JConsole(silent, true);
+		server = new ConsoleServer(console, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		server.start();
+		socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+		socket.setSoTimeout(5000);
+	}
+	
+	@After
+	public void stop() throws IOException {
+		socket.close();
+		server.close();
+	}
+	
+	@Test
+	public void runsACommandAndPromptsAgain() throws IOException {
+		assertEquals(">", readUntil(">"));
+		send("echo hello loopback\n");
+		assertEquals("\nhello loopback \n>", readUntil("\n>"));
+		send("nope\n");
+		assertEquals("\n" + Ansi.style("\"nope\" is not recognized as a command", Ansi.RED) + "\n>", readUntil("\n>"));
+	}
+	
+	@Test
+	public void runsQueuedLinesInOrder() throws IOException {
+		readUntil(">");
+		send("echo one\necho two\r\necho three\n");
+		assertEquals("\none \n>\ntwo \n>\nthree \n>", readUntil("three \n>"));
+	}
+	
+	@Test
+	public void exitHangsUp() throws IOException {
+		readUntil(">");
+		send("exit\n");
+		assertEquals(-1, socket.getInputStream().read());
+	}
+	
+	@Test
+	public void overlongLineHangsUp() throws IOException {
+		readUntil(">");
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 70000; i++)
+			line.append('a');
+		send(line.toString());
+		assertTrue(readUntil("characters").contains("Lines are limited"));
+		InputStream in = socket.getInputStream();
+		while (in.read() >= 0) {}
+	}
+	
+	@Test
+	public void uiCommandsRunOffTheSelectorThread() throws IOException { //The served console runs them inline, like a headless one
+		console.getCommands().add(new Command("thread", new Action() {
+			public void perform(JConsole session, String[] args) {
+				session.print("\n" + Thread.currentThread().getName());
+			}
+		}) {
+			public boolean isUICommand() { return true; }
+		});
+		readUntil(">");
+		send("thread\n");
+		assertEquals("\nJConsole server UI\n>", readUntil("\n>"));
+	}
+	
+	@Test
+	public void sessionsKeepTheirOwnHistory() throws InterruptedException { //Made on first use, lines before it are not kept
+		JConsole session = new JConsole(console.getView(), console);
+		session.execute("echo a").await();
+		assertNull(console.getHistory().get(0));
+		CommandHistory history = session.getHistory();
+		assertNotSame(console.getHistory(), history);
+		session.execute("echo b").await();
+		assertEquals(1, history.size());
+		assertEquals("echo b", history.get(0));
+	}
+	
+	private void send(String text) throws IOException {
+		OutputStream out = socket.getOutputStream();
+		out.write(text.getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+	
+	private String readUntil(String end) throws IOException { //Fails with a SocketTimeoutException if end never arrives
+		InputStream in = socket.getInputStream();
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		while (!new String(received.toByteArray(), StandardCharsets.UTF_8).endsWith(end)) {
+			int b = in.read();
+			if (b < 0)
+				break;
+			received.write(b);
+		}
+		return new String(received.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
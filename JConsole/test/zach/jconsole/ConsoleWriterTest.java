@@ -0,0 +1,94 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConsoleWriterTest {
+	
+	private final List<String> chunks = new ArrayList<String>();
+	private final List<Long> times = new ArrayList<Long>();
+	private JConsole console;
+	
+	@Before
+	public void setUp() {
+		console = new JConsole(new ConsoleView() {
+			public synchronized void print(String text) {
+				chunks.add(text);
+				times.add(System.nanoTime());
+				notifyAll();
+			}
+			public void clear() {}
+			public void close() {}
+			public void invoke(Runnable r) { r.run(); }
+		}, false);
+	}
+	
+	private void await(int count) throws InterruptedException {
+		Object view = console.getView();
+		synchronized (view) {
+			while (chunks.size() < count)
+				view.wait();
+		}
+	}
+	
+	@Test(timeout = 5000)
+	public void completeLinesLingerThenGoTogether() throws InterruptedException, IOException {
+		ConsoleWriter w = new ConsoleWriter(console);
+		long start = System.nanoTime();
+		w.write("one\n");
+		w.write("two\npart");
+		await(1);
+		synchronized (console.getView()) {
+			assertEquals("one\ntwo\n", chunks.get(0));
+			assertTrue(times.get(0) - start >= TimeUnit.MILLISECONDS.toNanos(ConsoleWriter.LINGER) - TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		Thread.sleep(50);
+		assertEquals(1, chunks.size()); //A partial line waits for its newline
+		w.write("ial\n");
+		await(2);
+		assertEquals("partial\n", chunks.get(1));
+	}
+	
+	@Test
+	public void fullBatchGoesAtOnce() throws IOException { //On the writing thread, before write returns, without the linger
+		ConsoleWriter w = new ConsoleWriter(console);
+		StringBuilder text = new StringBuilder();
+		while (text.length() < ConsoleWriter.BATCH)
+			text.append("a line of text\n");
+		int lines = text.length();
+		w.write(text.append("tail").toString());
+		assertEquals(1, chunks.size());
+		assertEquals(lines, chunks.get(0).length());
+		w.flush();
+		assertEquals("tail", chunks.get(1));
+	}
+	
+	@Test
+	public void hugeLineIsCut() throws IOException {
+		ConsoleWriter w = new ConsoleWriter(console);
+		char[] line = new char[ConsoleWriter.BATCH + 10];
+		Arrays.fill(line, 'y');
+		w.write(line, 0, line.length);
+		assertEquals(1, chunks.size());
+		assertEquals(line.length, chunks.get(0).length());
+	}
+	
+	@Test
+	public void flushDeliversAPartialLineWithItsStyle() throws IOException {
+		ConsoleWriter w = new ConsoleWriter(console, Ansi.RED);
+		w.write("no newline");
+		w.flush();
+		assertEquals(Ansi.RED + "no newline" + Ansi.RESET, chunks.get(0));
+		w.flush();
+		assertEquals(1, chunks.size());
+	}
+}
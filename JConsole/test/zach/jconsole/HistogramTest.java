@@ -0,0 +1,92 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HistogramTest {
+	
+	private static final double ERROR = 1.0 / 32; //Width of a bucket relative to its lowest value
+	
+	private static void assertNear(long expected, long actual) {
+		assertTrue(actual + " is not within " + ERROR + " of " + expected, actual >= expected && actual <= expected + expected * ERROR);
+	}
+	
+	@Test
+	public void smallValuesAreExact() {
+		Histogram h = new Histogram("small");
+		for (int i = 0; i < 32; i++)
+			h.record(i);
+		h.record(1000);
+		for (int i = 1; i < 32; i++)
+			assertEquals(i - 1, h.getPercentile(100.0 * i / 33));
+	}
+	
+	@Test
+	public void valuesLandWithinTheRelativeError() { //The percentile of a value's bucket reports the bucket's highest value
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			long value = 32 + (random.nextLong() >>> 1 + random.nextInt(62));
+			Histogram h = new Histogram("one");
+			h.record(value);
+			h.record(Long.MAX_VALUE);
+			assertNear(value, h.getPercentile(50));
+		}
+	}
+	
+	@Test
+	public void percentilesOfAUniformDistribution() {
+		Histogram h = new Histogram("uniform");
+		for (int i = 1; i <= 100000; i++)
+			h.record(i);
+		assertNear(50000, h.getP50());
+		assertNear(90000, h.getP90());
+		assertNear(99000, h.getP99());
+		assertNear(99900, h.getP999());
+		assertEquals(100000, h.getPercentile(100));
+		assertEquals(100000, h.getMax());
+		assertEquals(50000.5, h.getMean(), 1e-9);
+	}
+	
+	@Test
+	public void percentilesOfASkewedDistribution() { //99 fast samples to every slow one
+		Histogram h = new Histogram("skewed");
+		for (int i = 0; i < 9900; i++)
+			h.record(1000);
+		for (int i = 0; i < 100; i++)
+			h.record(1000000);
+		assertNear(1000, h.getP50());
+		assertNear(1000, h.getP99());
+		assertNear(1000000, h.getP999());
+		assertEquals(1000000, h.getMax());
+	}
+	
+	@Test
+	public void extremeValues() {
+		Histogram h = new Histogram("extreme");
+		h.record(-5); //Counted as 0
+		h.record(Long.MAX_VALUE); //In the highest bucket
+		h.record(Long.MAX_VALUE - 1);
+		assertEquals(3, h.getCount());
+		assertEquals(0, h.getPercentile(10));
+		assertEquals(Long.MAX_VALUE, h.getP50()); //Capped by the max, not past it
+		assertEquals(Long.MAX_VALUE, h.getP99());
+		assertEquals(Long.MAX_VALUE, h.getMax());
+	}
+	
+	@Test
+	public void emptyAndReset() {
+		Histogram h = new Histogram("reset");
+		assertEquals(0, h.getP99());
+		assertEquals(0, h.getMean(), 0);
+		h.record(123);
+		h.reset();
+		assertEquals(0, h.getCount());
+		assertEquals(0, h.getP50());
+		h.record(7);
+		assertEquals(7, h.getP50());
+	}
+}
@@ -0,0 +1,66 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class InputLineTest {
+	
+	private PlainDocument doc;
+	private InputLine input;
+	
+	@Before
+	public void setUp() {
+		doc = new PlainDocument();
+		input = new InputLine();
+		doc.addDocumentListener(input);
+	}
+	
+	private void print(String text) throws BadLocationException {
+		input.setAppending(true);
+		try {
+			doc.insertString(doc.getLength(), text, null);
+		} finally {
+			input.setAppending(false);
+		}
+	}
+	private void type(String text) throws BadLocationException {
+		doc.insertString(doc.getLength(), text, null);
+	}
+	private String line() throws BadLocationException {
+		return doc.getText(input.start(), doc.getLength() - input.start());
+	}
+	
+	@Test
+	public void typedRedirectStaysInTheInput() throws BadLocationException {
+		print("output\n>");
+		type("echo a > f");
+		assertEquals("echo a > f", line());
+		type(" >> g");
+		assertEquals("echo a > f >> g", line());
+	}
+	
+	@Test
+	public void printedTextMovesTheStart() throws BadLocationException {
+		print("one\n>");
+		type("echo a > f");
+		print("\ntwo\n>");
+		assertEquals("", line());
+		type("ls");
+		assertEquals("ls", line());
+	}
+	
+	@Test
+	public void editsBeforeTheInputShiftIt() throws BadLocationException {
+		print("first\nsecond\n>");
+		type("echo a > f");
+		doc.remove(0, "first\n".length());
+		assertEquals("echo a > f", line());
+		doc.insertString(0, "zero\n", null);
+		assertEquals("echo a > f", line());
+	}
+}
@@ -0,0 +1,97 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class PipeTest {
+	
+	@Test
+	public void readerDrainsTheBufferAfterClose() {
+		Pipe p = new Pipe(4);
+		assertTrue(p.put("a"));
+		assertTrue(p.put("b"));
+		p.close();
+		assertFalse(p.put("c"));
+		assertEquals("a", p.take());
+		assertEquals("b", p.take());
+		assertNull(p.take());
+		assertNull(p.take());
+	}
+	
+	@Test
+	public void emptyIsAlreadyAtTheEnd() {
+		assertNull(Pipe.empty().take());
+	}
+	
+	@Test
+	public void cancelDropsTheBufferAndStopsTheWriter() {
+		Pipe p = new Pipe(4);
+		p.put("a");
+		p.cancel();
+		assertTrue(p.isCancelled());
+		assertNull(p.take());
+		assertFalse(p.put("b"));
+	}
+	
+	@Test(timeout = 5000)
+	public void fullPipeBlocksTheWriterUntilTaken() throws InterruptedException {
+		final Pipe p = new Pipe(2);
+		p.put("a");
+		p.put("b");
+		final AtomicBoolean put = new AtomicBoolean();
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				put.set(p.put("c"));
+			}
+		});
+		writer.start();
+		writer.join(100);
+		assertTrue(writer.isAlive());
+		assertEquals("a", p.take());
+		writer.join();
+		assertTrue(put.get());
+		p.close();
+		assertEquals("b", p.take());
+		assertEquals("c", p.take());
+		assertNull(p.take());
+	}
+	
+	@Test(timeout = 5000)
+	public void cancelWakesABlockedWriter() throws InterruptedException {
+		final Pipe p = new Pipe(1);
+		p.put("a");
+		final AtomicBoolean put = new AtomicBoolean(true);
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				put.set(p.put("b"));
+			}
+		});
+		writer.start();
+		writer.join(100);
+		p.cancel();
+		writer.join();
+		assertFalse(put.get());
+	}
+	
+	@Test(timeout = 5000)
+	public void closeWakesABlockedReader() throws InterruptedException {
+		final Pipe p = new Pipe(1);
+		final String[] taken = {"unset"};
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				taken[0] = p.take();
+			}
+		});
+		reader.start();
+		reader.join(100);
+		p.close();
+		reader.join();
+		assertNull(taken[0]);
+	}
+}
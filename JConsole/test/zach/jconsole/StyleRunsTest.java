@@ -0,0 +1,105 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StyleRunsTest {
+	
+	private static final String ESC = "\u001b";
+	private static final int RED = 31 - 30 + 1, GREEN = 32 - 30 + 1; //Palette index + 1
+	
+	private final StyleRuns runs = new StyleRuns();
+	private final StringBuilder doc = new StringBuilder();
+	
+	private void print(String text) {
+		doc.append(runs.append(text, doc.length()));
+	}
+	private int styleAt(int offset) { return runs.style(runs.indexAt(offset)); }
+	private int fg(int offset) { return styleAt(offset) & 0x1FF; }
+	private int bg(int offset) { return styleAt(offset) >> 9 & 0x1FF; }
+	
+	@Test
+	public void plainTextHasNoRuns() {
+		print("plain text");
+		assertEquals("plain text", doc.toString());
+		assertTrue(runs.isEmpty());
+		assertEquals(0, styleAt(3));
+	}
+	
+	@Test
+	public void resetEndsTheStyle() {
+		print("a" + ESC + "[1;31mred" + ESC + "[0mb" + ESC + "[32mg" + ESC + "[mc");
+		assertEquals("aredbgc", doc.toString());
+		assertEquals(0, styleAt(0));
+		assertEquals(RED, fg(1));
+		assertTrue((styleAt(3) & StyleRuns.BOLD) != 0);
+		assertEquals(4, runs.end(runs.indexAt(1)));
+		assertEquals(0, styleAt(4));
+		assertEquals(GREEN, fg(5));
+		assertEquals(0, styleAt(6)); //An empty SGR is a reset too
+	}
+	
+	@Test
+	public void escapeSplitBetweenPrints() {
+		print("a" + ESC);
+		print("[3");
+		print("1mb");
+		assertEquals("ab", doc.toString());
+		assertEquals(0, styleAt(0));
+		assertEquals(RED, fg(1));
+	}
+	
+	@Test
+	public void malformedEscapesAreDropped() {
+		print("a" + ESC + "Xb"); //Not a CSI, dropped with its one char
+		assertEquals("ab", doc.toString());
+		print(ESC + "[31;;4 q" + "c"); //A CSI ending in something other than 'm' changes nothing
+		assertEquals("abc", doc.toString());
+		assertTrue(runs.isEmpty());
+		print(ESC + "[" + "9999999999999999999999999999999999999999999999999999999999999999999999m" + "d"); //Overlong parameters are cut
+		assertEquals("abcd", doc.toString());
+	}
+	
+	@Test
+	public void extendedColorsCutShort() {
+		print(ESC + "[38;5ma"); //No index
+		print(ESC + "[38;2;10;20mb"); //Two of three components
+		print(ESC + "[48m" + "c");
+		assertEquals("abc", doc.toString());
+		assertTrue(runs.isEmpty());
+		print(ESC + "[38;5;300;48;5;17md"); //Index clamped to the palette
+		assertEquals(256, fg(3));
+		assertEquals(18, bg(3));
+		print(ESC + "[38;2;255;0;0me");
+		assertEquals(Ansi.nearest(255, 0, 0) + 1, fg(4));
+		assertEquals(18, bg(4));
+	}
+	
+	@Test
+	public void sameStyleAcrossPrintsIsOneRun() {
+		print(ESC + "[31mab");
+		print(ESC + "[31mcd");
+		print("ef");
+		assertEquals("abcdef", doc.toString());
+		int run = runs.indexAt(0);
+		assertEquals(run, runs.indexAt(5));
+		assertEquals(Integer.MAX_VALUE, runs.end(run));
+		print(ESC + "[32m" + ESC + "[31mgh"); //A style nothing was printed in leaves no run
+		assertEquals(run, runs.indexAt(7));
+		print(ESC + "[32m");
+		print("ij");
+		assertEquals(GREEN, fg(8));
+		assertEquals(8, runs.end(run));
+	}
+	
+	@Test
+	public void evictionMovesTheRuns() {
+		print("abc" + ESC + "[31mdef" + ESC + "[0mghi");
+		runs.evict(4);
+		assertEquals(RED, fg(0));
+		assertEquals(0, styleAt(2));
+		assertEquals(2, runs.end(runs.indexAt(0)));
+	}
+}
@@ -0,0 +1,75 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TokenizerTest {
+	
+	private final Tokenizer tokens = new Tokenizer();
+	
+	@Test
+	public void splitsOnSpacesAndTabs() {
+		assertEquals(3, tokens.parse("  echo\ta   b "));
+		assertArrayEquals(new String[] {"echo", "a", "b"}, tokens.toArray());
+		assertEquals(0, tokens.operators());
+	}
+	
+	@Test
+	public void operatorsNeedNoSpaces() {
+		assertEquals(8, tokens.parse("ls|grep a>f>>g"));
+		assertArrayEquals(new String[] {"ls", "|", "grep", "a", ">", "f", ">>", "g"}, tokens.toArray());
+		assertEquals(3, tokens.operators());
+		assertTrue(tokens.isOperator(1));
+		assertFalse(tokens.isOperator(2));
+		assertTrue(tokens.isOperator(4));
+		assertTrue(tokens.isOperator(6));
+	}
+	
+	@Test
+	public void appendIsOneOperator() {
+		tokens.parse("echo a >> f");
+		assertArrayEquals(new String[] {"echo", "a", ">>", "f"}, tokens.toArray());
+		assertEquals(1, tokens.operators());
+		tokens.parse("echo a > > f");
+		assertArrayEquals(new String[] {"echo", "a", ">", ">", "f"}, tokens.toArray());
+		assertEquals(2, tokens.operators());
+	}
+	
+	@Test
+	public void quotedOperatorsAreText() {
+		tokens.parse("echo \"a | b\" 'c > d' e\\>f");
+		assertArrayEquals(new String[] {"echo", "a | b", "c > d", "e>f"}, tokens.toArray());
+		assertEquals(0, tokens.operators());
+		for (int i = 0; i < tokens.count(); i++)
+			assertFalse(tokens.isOperator(i));
+	}
+	
+	@Test
+	public void escapesInDoubleQuotesOnly() {
+		tokens.parse("\"a \\\" b\" 'c \\ d' e\\ f");
+		assertArrayEquals(new String[] {"a \" b", "c \\ d", "e f"}, tokens.toArray());
+	}
+	
+	@Test
+	public void quotesJoinWithTheTokenAroundThem() {
+		tokens.parse("a\"b c\"d ''");
+		assertArrayEquals(new String[] {"ab cd", ""}, tokens.toArray());
+	}
+	
+	@Test
+	public void buffersGrowAndAreReused() {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+			line.append(i % 10 == 0 ? "| " : "token" + i + " ");
+		assertEquals(100, tokens.parse(line));
+		assertEquals(10, tokens.operators());
+		assertEquals("token99", tokens.get(99));
+		assertEquals(1, tokens.parse("x"));
+		assertFalse(tokens.isOperator(0));
+		assertEquals("x", tokens.token(0).toString());
+	}
+}
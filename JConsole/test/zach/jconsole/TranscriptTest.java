@@ -0,0 +1,121 @@
+package zach.jconsole;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TranscriptTest {
+	
+	@Rule
+	public TemporaryFolder dir = new TemporaryFolder();
+	
+	@Test
+	public void appendAcrossRotationKeepsEveryByte() throws IOException {
+		Transcript t = new Transcript(dir.getRoot(), 16, 100);
+		t.append("0123456789");
+		t.append("abcdefghij");
+		t.append("KLMNOPQRSTUVWXYZ");
+		assertEquals(36, t.length());
+		assertEquals("0123456789abcdefghijKLMNOPQRSTUVWXYZ", t.tail(1, 0));
+		t.close();
+	}
+	
+	@Test
+	public void tailReadsLinesAcrossSegments() throws IOException {
+		Transcript t = new Transcript(dir.getRoot(), 16, 100);
+		StringBuilder all = new StringBuilder();
+		for (int i = 0; i < 50; i++) {
+			String line = "\nline " + i + (i % 3 == 0 ? " é中" : "");
+			t.append(line);
+			all.append(line);
+		}
+		String[] lines = all.substring(1).split("\n");
+		assertEquals(lines[49], t.tail(1, 0));
+		assertEquals(lines[40] + "\n" + lines[41] + "\n" + lines[42], t.tail(3, 7));
+		assertEquals(all.toString(), t.tail(100, 0));
+		t.close();
+	}
+	
+	@Test
+	public void reopenContinuesTheTranscript() throws IOException {
+		File root = dir.getRoot();
+		Transcript t = new Transcript(root, 16, 100);
+		t.append("first line that spans segments");
+		t.close();
+		t = new Transcript(root, 16, 100);
+		t.append("\nsecond");
+		assertEquals("first line that spans segments\nsecond", t.tail(2, 0));
+		t.close();
+	}
+	
+	@Test
+	public void oldSegmentsAreDropped() throws IOException {
+		Transcript t = new Transcript(dir.getRoot(), 16, 2);
+		for (int i = 0; i < 20; i++)
+			t.append("\n" + i + "abcdefgh");
+		assertEquals(2, dir.getRoot().listFiles().length);
+		assertEquals("19abcdefgh", t.tail(1, 0));
+		t.close();
+	}
+	
+	@Test
+	public void surrogatePairSplitAcrossAppendsIsKept() throws IOException {
+		Transcript t = new Transcript(dir.getRoot(), 16, 100);
+		String clef = "\uD834\uDD1E";
+		t.append("a" + clef.charAt(0));
+		t.append(clef.charAt(1) + "b");
+		t.append("0123456789abc" + clef.charAt(0)); //Split again right at a rotation
+		t.append(clef.substring(1));
+		assertEquals("a" + clef + "b0123456789abc" + clef, t.tail(1, 0));
+		t.close();
+	}
+	
+	@Test
+	public void otherFilesInTheDirectoryAreIgnored() throws IOException {
+		File root = dir.getRoot();
+		new File(root, "transcript.bak").createNewFile();
+		new File(root, "notes.txt").createNewFile();
+		Transcript t = new Transcript(root, 16, 100);
+		t.append("text");
+		assertEquals("text", t.tail(1, 0));
+		t.close();
+		assertTrue(new File(root, "transcript.bak").exists());
+	}
+	
+	@Test
+	public void closedSegmentsKeepTheirLengthInATrailer() throws IOException {
+		File root = dir.getRoot();
+		Transcript t = new Transcript(root, 16, 100);
+		t.append("abc\u0000"); //A zero byte ends the text, only the trailer knows it is there
+		t.close();
+		assertEquals(16 + 8, new File(root, "transcript.000000").length());
+		t = new Transcript(root, 16, 100);
+		assertEquals(4, t.length());
+		t.append("def");
+		assertEquals("abc\u0000def", t.tail(1, 0));
+		assertEquals(null, t.getError());
+		t.close();
+	}
+	
+	@Test
+	public void segmentLeftOpenByACrashIsScanned() throws IOException {
+		File root = dir.getRoot();
+		RandomAccessFile f = new RandomAccessFile(new File(root, "transcript.000003"), "rw");
+		f.write("line one\nline two".getBytes(StandardCharsets.UTF_8));
+		f.setLength(64 + 8); //Zero filled tail and a trailer still at 0
+		f.close();
+		Transcript t = new Transcript(root, 16, 100);
+		assertEquals(17, t.length());
+		t.append("\nthree");
+		assertEquals("line two\nthree", t.tail(2, 0));
+		t.close();
+	}
+}
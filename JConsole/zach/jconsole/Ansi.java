@@ -0,0 +1,70 @@
+package zach.jconsole;
+
+import java.awt.Color;
+
+public class Ansi { //SGR escape sequences the window renders as colors, other front ends pass them on unchanged
+	
+	public static final String RESET = "\u001b[0m";
+	public static final String BOLD = "\u001b[1m";
+	public static final String UNDERLINE = "\u001b[4m";
+	public static final String BLACK = "\u001b[30m";
+	public static final String RED = "\u001b[31m";
+	public static final String GREEN = "\u001b[32m";
+	public static final String YELLOW = "\u001b[33m";
+	public static final String BLUE = "\u001b[34m";
+	public static final String MAGENTA = "\u001b[35m";
+	public static final String CYAN = "\u001b[36m";
+	public static final String WHITE = "\u001b[37m";
+	
+	private static Color[] palette;
+	
+	public static String fg(int index) { return "\u001b[38;5;" + index + "m"; } //256 color palette
+	public static String bg(int index) { return "\u001b[48;5;" + index + "m"; }
+	
+	public static String style(String text, String... styles) { //Text in the given styles, reset after
+		StringBuilder s = new StringBuilder();
+		for (String style : styles)
+			s.append(style);
+		return s.append(text).append(RESET).toString();
+	}
+	
+	static String strip(String text) { //Text without its escape sequences
+		if (text.indexOf('\u001b') < 0)
+			return text;
+		StringBuilder s = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c != '\u001b')
+				s.append(c);
+			else if (i + 1 < text.length() && text.charAt(i + 1) == '[') { //CSI, parameters up to a final byte in @..~
+				i += 2;
+				while (i < text.length() && (text.charAt(i) < '@' || text.charAt(i) > '~'))
+					i++;
+			}
+		}
+		return s.toString();
+	}
+	
+	static synchronized Color color(int index) { //xterm 256 color palette
+		if (palette == null) {
+			palette = new Color[256];
+			int[] basic = {0x000000, 0xCD0000, 0x00CD00, 0xCDCD00, 0x0000EE, 0xCD00CD, 0x00CDCD, 0xE5E5E5,
+					0x7F7F7F, 0xFF0000, 0x00FF00, 0xFFFF00, 0x5C5CFF, 0xFF00FF, 0x00FFFF, 0xFFFFFF};
+			for (int i = 0; i < 16; i++)
+				palette[i] = new Color(basic[i]);
+			for (int i = 0; i < 216; i++)
+				palette[16 + i] = new Color(level(i / 36), level(i / 6 % 6), level(i % 6));
+			for (int i = 0; i < 24; i++)
+				palette[232 + i] = new Color(8 + i * 10, 8 + i * 10, 8 + i * 10);
+		}
+		return palette[index];
+	}
+	
+	private static int level(int i) { return i == 0 ? 0 : 55 + i * 40; }
+	
+	static int nearest(int r, int g, int b) { //Palette index closest to a 24 bit color, from the 6x6x6 cube
+		return 16 + 36 * step(r) + 6 * step(g) + step(b);
+	}
+	
+	private static int step(int v) { return v < 48 ? 0 : v < 115 ? 1 : (Math.min(v, 255) - 35) / 40; } //Clamped, past 255 it leaves the palette
+}
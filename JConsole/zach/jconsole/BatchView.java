@@ -0,0 +1,52 @@
+package zach.jconsole;
+
+class BatchView implements ConsoleView { //Collects the output of a script and hands it to the console in large pieces
+	
+	private static final int MAX_BATCH = 1 << 16; //Flushes early past this many chars so memory stays bounded
+	
+	private final JConsole console;
+	private final StringBuilder batch = new StringBuilder();
+	private volatile boolean closed;
+	
+	BatchView(JConsole console) {
+		this.console = console;
+	}
+	
+	public void print(String text) { //Any thread, commands of a pipeline print concurrently
+		String full = null;
+		synchronized (this) {
+			batch.append(text);
+			if (batch.length() >= MAX_BATCH) {
+				full = batch.toString();
+				batch.setLength(0);
+			}
+		}
+		if (full != null)
+			console.print(full);
+	}
+	
+	public void flush() {
+		String text;
+		synchronized (this) {
+			text = batch.toString();
+			batch.setLength(0);
+		}
+		if (!text.isEmpty())
+			console.print(text);
+	}
+	
+	public void clear() {
+		synchronized (this) {
+			batch.setLength(0);
+		}
+		console.clear();
+	}
+	public void close() { //exit in a script ends the script and then the console
+		closed = true;
+		flush();
+		console.getView().close();
+	}
+	public void invoke(Runnable r) { console.getView().invoke(r); }
+	
+	public boolean isClosed() { return closed; }
+}
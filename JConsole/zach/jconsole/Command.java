@@ -1,14 +1,48 @@
-package zach.jconsole;
-
-public class Command {
-	private String command;
-	private Action action;
-	public Command(String command, Action action) {
-		this.command = command;
-		this.action = action;
-	}
-	public final void perform(JConsole console, String[] args) { action.perform(console, args); }
-	public final String getCommand() { return command; }
-	public String getHelpString() { return "Default Help String"; }
-	public String toString() { return getCommand(); }
+package zach.jconsole;
+
+import java.util.Iterator;
+
+public class Command {
+	private String command;
+	private Action action;
+	private StreamAction stream;
+	public Command(String command, Action action) {
+		this.command = command;
+		this.action = action;
+	}
+	public Command(String command, final StreamAction stream) { //Run on its own it gets no input and prints its output
+		this(command, new Action() {
+			public void perform(JConsole console, String[] args) {
+				Pipe out = Pipe.printer(console);
+				try {
+					stream.perform(console, args, Pipe.empty(), out);
+				} finally {
+					out.close();
+				}
+			}
+		});
+		this.stream = stream;
+	}
+	public Command(String command, final PagedAction paged) { //Paged when run on its own, streamed line by line in a pipeline
+		this(command, new Action() {
+			public void perform(JConsole console, String[] args) {
+				console.page(paged.lines(console, args));
+			}
+		});
+		this.stream = new StreamAction() {
+			public void perform(JConsole console, String[] args, Pipe in, Pipe out) {
+				Iterator<String> lines = paged.lines(console, args);
+				while (lines.hasNext())
+					if (!out.put(lines.next()))
+						return;
+			}
+		};
+	}
+	public final void perform(JConsole console, String[] args) { action.perform(console, args); }
+	public final String getCommand() { return command; }
+	public final StreamAction getStreamAction() { return stream; } //null for plain actions
+	public String getHelpString() { return "Default Help String"; }
+	public boolean isUICommand() { return false; } //UI commands run on the EDT instead of the command executor
+	public long getTimeout() { return 0; } //Millis, 0 uses the executor's timeout
+	public String toString() { return getCommand(); }
 }
\ No newline at end of file
@@ -0,0 +1,362 @@
+package zach.jconsole;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+final class CommandBinder { //Turns @ConsoleCommand methods into commands, everything but the argument values is worked out here
+	//Each method is bound once: LambdaMetafactory spins a CallN implementation that calls it directly, with a spread
+	//MethodHandle as the fallback for lookups without private access and longer parameter lists
+	
+	private static final String[] NO_ARGS = new String[0];
+	private static final int CONSOLE = -1, REST = -2; //Parameter sources that are not argument values
+	
+	interface Call0 { void call(); } //Package-private so the spun classes, defined next to the lookup's class, can reach them
+	interface Call1 { void call(Object a); }
+	interface Call2 { void call(Object a, Object b); }
+	interface Call3 { void call(Object a, Object b, Object c); }
+	interface Call4 { void call(Object a, Object b, Object c, Object d); }
+	interface Call5 { void call(Object a, Object b, Object c, Object d, Object e); }
+	private static final Class<?>[] CALLS = {Call0.class, Call1.class, Call2.class, Call3.class, Call4.class, Call5.class};
+	
+	private interface Converter { //Argument text to a parameter value
+		Object convert(int index, String s);
+	}
+	
+	private static class BadArgument extends RuntimeException { //A value did not convert
+		private static final long serialVersionUID = 1L;
+		private final int index;
+		private BadArgument(int index, String message) {
+			super(message, null, false, false);
+			this.index = index;
+		}
+	}
+	
+	private static final class Bound implements Action {
+		private final String name;
+		private final String usage;
+		private final int[] sources; //Per parameter, CONSOLE, REST or the index of its value
+		private final Converter[] converters; //Per value
+		private final String[] defaults; //Per value, null for required ones and optional ones without a default
+		private final int required;
+		private final boolean rest;
+		private Object call; //CallN, or null to go through spread
+		private MethodHandle spread; //(Object[])void
+		
+		private Bound(String name, String usage, int[] sources, Converter[] converters, String[] defaults, int required, boolean rest) {
+			this.name = name;
+			this.usage = usage;
+			this.sources = sources;
+			this.converters = converters;
+			this.defaults = defaults;
+			this.required = required;
+			this.rest = rest;
+		}
+		
+		public void perform(JConsole console, String[] args) {
+			int given = args.length - 1;
+			if (given < required || !rest && given > defaults.length) {
+				console.print("\n" + Ansi.style("Usage: " + usage, Ansi.RED));
+				return;
+			}
+			Object[] p;
+			try {
+				p = parameters(console, args);
+			} catch (BadArgument e) {
+				console.print("\n" + Ansi.style("Bad argument " + (e.index + 1) + " to \"" + name + "\": " + e.getMessage(), Ansi.RED));
+				return;
+			}
+			try {
+				invoke(p);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) { //Checked exceptions of the method
+				throw new RuntimeException(e);
+			}
+		}
+		
+		private Object[] parameters(JConsole console, String[] args) { //Converted values, the console and the rest, in parameter order
+			int given = args.length - 1;
+			Object[] p = new Object[sources.length];
+			for (int i = 0; i < p.length; i++) {
+				int source = sources[i];
+				if (source == CONSOLE)
+					p[i] = console;
+				else if (source == REST)
+					p[i] = given > defaults.length ? Arrays.copyOfRange(args, defaults.length + 1, args.length) : NO_ARGS;
+				else {
+					String value = source < given ? args[source + 1] : defaults[source];
+					p[i] = value != null ? converters[source].convert(source, value) : null;
+				}
+			}
+			return p;
+		}
+		
+		private void invoke(Object[] p) throws Throwable {
+			if (call == null)
+				spread.invokeExact(p);
+			else switch (p.length) {
+			case 0: ((Call0) call).call(); break;
+			case 1: ((Call1) call).call(p[0]); break;
+			case 2: ((Call2) call).call(p[0], p[1]); break;
+			case 3: ((Call3) call).call(p[0], p[1], p[2]); break;
+			case 4: ((Call4) call).call(p[0], p[1], p[2], p[3]); break;
+			default: ((Call5) call).call(p[0], p[1], p[2], p[3], p[4]);
+			}
+		}
+	}
+	
+	static List<Command> bind(Object target, MethodHandles.Lookup lookup) { //Annotated methods of target and its superclasses, only static ones for a Class
+		List<Command> out = new ArrayList<Command>();
+		Set<String> seen = new HashSet<String>(); //Overridden methods are bound once, through the override
+		for (Class<?> type = target instanceof Class ? (Class<?>) target : target.getClass(); type != null; type = type.getSuperclass())
+			for (Method m : type.getDeclaredMethods())
+				if (m.isAnnotationPresent(ConsoleCommand.class) && seen.add(m.getName() + Arrays.toString(m.getParameterTypes())))
+					bind(target, lookup, m, out);
+		return out;
+	}
+	
+	private static void bind(Object target, MethodHandles.Lookup lookup, Method m, List<Command> out) {
+		boolean isStatic = Modifier.isStatic(m.getModifiers());
+		if (!isStatic && target instanceof Class)
+			return;
+		MethodHandle handle;
+		try {
+			handle = lookup.unreflect(m).asFixedArity(); //String... is the rest, not collected again
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException(m + " is not accessible, pass a lookup from its class", e);
+		}
+		Bound action = action(m);
+		int arity = m.getParameterTypes().length;
+		action.call = lambda(lookup, m, handle, isStatic ? null : target);
+		if (action.call == null) {
+			if (!isStatic)
+				handle = handle.bindTo(target);
+			action.spread = handle.asType(MethodType.genericMethodType(arity).changeReturnType(void.class)) //Results are dropped
+					.asSpreader(Object[].class, arity);
+		}
+		final ConsoleCommand annotation = m.getAnnotation(ConsoleCommand.class);
+		final String help = help(m, annotation);
+		out.add(new Command(action.name, action) {
+			public String getHelpString() { return help; }
+			public boolean isUICommand() { return annotation.ui(); }
+			public long getTimeout() { return annotation.timeout(); }
+		});
+	}
+	
+	private static Object lambda(MethodHandles.Lookup lookup, Method m, MethodHandle direct, Object target) { //CallN calling m, null if it cannot be spun
+		int arity = m.getParameterTypes().length;
+		if (arity >= CALLS.length)
+			return null;
+		MethodType factory = target == null ? MethodType.methodType(CALLS[arity]) : MethodType.methodType(CALLS[arity], m.getDeclaringClass());
+		MethodType instantiated = MethodType.methodType(void.class, m.getParameterTypes()).wrap().changeReturnType(void.class);
+		try {
+			CallSite site = LambdaMetafactory.metafactory(lookup, "call", factory,
+					MethodType.genericMethodType(arity).changeReturnType(void.class), direct, instantiated);
+			return target == null ? site.getTarget().invoke() : site.getTarget().invoke(target);
+		} catch (Throwable e) { //A lookup without private access, or from a package the CallN interfaces are hidden from
+			return null;
+		}
+	}
+	
+	private static Bound action(Method m) {
+		ConsoleCommand annotation = m.getAnnotation(ConsoleCommand.class);
+		String name = annotation.name().isEmpty() ? m.getName() : annotation.name();
+		Class<?>[] types = m.getParameterTypes();
+		int[] sources = new int[types.length];
+		List<Converter> converters = new ArrayList<Converter>();
+		List<String> defaults = new ArrayList<String>();
+		StringBuilder usage = new StringBuilder(name);
+		int required = 0;
+		boolean rest = false;
+		for (int i = 0; i < types.length; i++) {
+			ConsoleCommand.Arg arg = arg(m, i);
+			if (types[i] == JConsole.class) {
+				sources[i] = CONSOLE;
+			} else if (isRest(types, i)) {
+				sources[i] = REST;
+				rest = true;
+				usage.append(" [").append(arg != null ? arg.value() : "args").append("...]");
+			} else {
+				int index = converters.size();
+				String argName = arg != null ? arg.value() : "arg" + (index + 1);
+				Converter converter = converter(types[i], arg);
+				String value = defaultValue(arg);
+				if (isOptional(arg)) {
+					if (value == null && types[i].isPrimitive())
+						throw new IllegalArgumentException(m + ": optional " + argName + " needs a defaultValue");
+					try {
+						if (value != null)
+							converter.convert(index, value);
+					} catch (BadArgument e) {
+						throw new IllegalArgumentException(m + ": default of " + argName + " is not valid, " + e.getMessage());
+					}
+				} else if (required < index) {
+					throw new IllegalArgumentException(m + ": " + argName + " is required but follows an optional argument");
+				} else {
+					required++;
+				}
+				String shown = types[i].isEnum() ? choices(types[i]) : argName;
+				usage.append(isOptional(arg) ? " [" + shown + "]" : " <" + shown + ">");
+				sources[i] = index;
+				converters.add(converter);
+				defaults.add(value);
+			}
+		}
+		return new Bound(name, usage.toString(), sources, converters.toArray(new Converter[0]), defaults.toArray(new String[0]), required, rest);
+	}
+	
+	private static String help(Method m, ConsoleCommand annotation) { //Same layout as the hand written help strings
+		StringBuilder help = new StringBuilder(annotation.help().isEmpty() ? annotation.name().isEmpty() ? m.getName() : annotation.name() : annotation.help());
+		Class<?>[] types = m.getParameterTypes();
+		int index = 0;
+		for (int i = 0; i < types.length; i++) {
+			ConsoleCommand.Arg arg = arg(m, i);
+			if (types[i] == JConsole.class)
+				continue;
+			String line = arg == null ? isRest(types, i) ? "args" : "arg" + (index + 1) : arg.help().isEmpty() ? arg.value() : arg.help();
+			if (isRest(types, i)) {
+				help.append("\nargs = ").append(line);
+				continue;
+			}
+			help.append("\narg").append(++index).append(" = ").append(line);
+			if (isOptional(arg))
+				help.append(defaultValue(arg) == null ? " (optional)" : " (default " + defaultValue(arg) + ")");
+		}
+		return help.toString();
+	}
+	
+	private static ConsoleCommand.Arg arg(Method m, int i) {
+		for (Annotation a : m.getParameterAnnotations()[i])
+			if (a instanceof ConsoleCommand.Arg)
+				return (ConsoleCommand.Arg) a;
+		return null;
+	}
+	private static boolean isRest(Class<?>[] types, int i) { return types[i] == String[].class && i == types.length - 1; }
+	private static boolean isOptional(ConsoleCommand.Arg arg) { return arg != null && (arg.optional() || !arg.defaultValue().isEmpty()); }
+	private static String defaultValue(ConsoleCommand.Arg arg) { return arg != null && !arg.defaultValue().isEmpty() ? arg.defaultValue() : null; }
+	
+	private static String choices(Class<?> type) {
+		StringBuilder s = new StringBuilder();
+		for (Object o : type.getEnumConstants())
+			s.append(s.length() > 0 ? "|" : "").append(o.toString().toLowerCase(Locale.ROOT));
+		return s.toString();
+	}
+	
+	//Converters, picked once per parameter, the messages are shown as they are
+	
+	private static final Converter STRING = new Converter() {
+		public Object convert(int index, String s) { return s; }
+	};
+	private static final Converter BOOLEAN = new Converter() {
+		public Object convert(int index, String s) {
+			if (s.equalsIgnoreCase("true") || s.equalsIgnoreCase("on") || s.equalsIgnoreCase("yes") || s.equals("1"))
+				return Boolean.TRUE;
+			if (s.equalsIgnoreCase("false") || s.equalsIgnoreCase("off") || s.equalsIgnoreCase("no") || s.equals("0"))
+				return Boolean.FALSE;
+			throw new BadArgument(index, "\"" + s + "\" is not on or off");
+		}
+	};
+	
+	private static Converter converter(final Class<?> type, ConsoleCommand.Arg arg) {
+		final long min = arg != null ? arg.min() : Long.MIN_VALUE, max = arg != null ? arg.max() : Long.MAX_VALUE;
+		if (type == String.class || type == Object.class || type == CharSequence.class)
+			return STRING;
+		if (type == int.class || type == Integer.class)
+			return new Converter() {
+				public Object convert(int index, String s) {
+					return (int) whole(index, s, Math.max(min, Integer.MIN_VALUE), Math.min(max, Integer.MAX_VALUE));
+				}
+			};
+		if (type == long.class || type == Long.class)
+			return new Converter() {
+				public Object convert(int index, String s) { return whole(index, s, min, max); }
+			};
+		if (type == double.class || type == Double.class)
+			return new Converter() {
+				public Object convert(int index, String s) {
+					double value;
+					try {
+						value = Double.parseDouble(s);
+					} catch (NumberFormatException e) {
+						throw new BadArgument(index, "\"" + s + "\" is not a number");
+					}
+					if (!(value >= min && value <= max)) //Also NaN
+						throw new BadArgument(index, s + " is not " + range(min, max));
+					return value;
+				}
+			};
+		if (type == boolean.class || type == Boolean.class)
+			return BOOLEAN;
+		if (type.isEnum())
+			return new Converter() {
+				private final Object[] constants = type.getEnumConstants();
+				public Object convert(int index, String s) {
+					for (Object o : constants)
+						if (((Enum<?>) o).name().equalsIgnoreCase(s))
+							return o;
+					throw new BadArgument(index, "\"" + s + "\" is not one of " + choices(type).replace("|", ", "));
+				}
+			};
+		final MethodHandle factory = factory(type).asType(MethodType.methodType(Object.class, String.class));
+		return new Converter() {
+			public Object convert(int index, String s) {
+				try {
+					return factory.invokeExact(s);
+				} catch (IllegalArgumentException e) {
+					String message = e.getMessage();
+					if (e instanceof NumberFormatException || message == null || message.isEmpty())
+						message = "\"" + s + "\" is not a valid " + type.getSimpleName();
+					throw new BadArgument(index, message);
+				} catch (RuntimeException | Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new BadArgument(index, "\"" + s + "\" is not a valid " + type.getSimpleName() + ", " + e);
+				}
+			}
+		};
+	}
+	
+	private static MethodHandle factory(Class<?> type) { //static valueOf(String) or decode(String) returning the type, or a String constructor
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		for (String name : new String[] {"valueOf", "decode"})
+			try {
+				return lookup.findStatic(type, name, MethodType.methodType(type, String.class));
+			} catch (ReflectiveOperationException e) {}
+		try {
+			return lookup.findConstructor(type, MethodType.methodType(void.class, String.class));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException(type.getName() + " arguments are not supported, it has no public valueOf(String) or String constructor");
+		}
+	}
+	
+	private static long whole(int index, String s, long min, long max) {
+		long value;
+		try {
+			value = Long.parseLong(s);
+		} catch (NumberFormatException e) {
+			throw new BadArgument(index, "\"" + s + "\" is not a whole number");
+		}
+		if (value < min || value > max)
+			throw new BadArgument(index, s + " is not " + range(min, max));
+		return value;
+	}
+	private static String range(long min, long max) { //int bounds are real limits, only the long ones mean unbounded
+		if (max == Long.MAX_VALUE)
+			return "at least " + min;
+		if (min == Long.MIN_VALUE)
+			return "at most " + max;
+		return "between " + min + " and " + max;
+	}
+}
@@ -0,0 +1,206 @@
+package zach.jconsole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class CommandExecutor { //Runs commands off the EDT with a timeout and a cap on concurrent commands
+	
+	private static final ThreadFactory daemons = new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "JConsole command");
+			t.setDaemon(true);
+			return t;
+		}
+	};
+	private static ScheduledExecutorService scheduler; //Command timeouts and watches
+	
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final ThreadLocal<Boolean> holding = new ThreadLocal<Boolean>(); //Set while the thread's command holds a permit
+	private final int maxConcurrent;
+	private volatile long timeout;
+	
+	public CommandExecutor() {
+		this(defaultExecutor(), 64, 0);
+	}
+	public CommandExecutor(ExecutorService executor, int maxConcurrent, long timeoutMillis) {
+		this.executor = executor;
+		this.maxConcurrent = maxConcurrent;
+		this.permits = new Semaphore(maxConcurrent, true);
+		this.timeout = timeoutMillis;
+	}
+	
+	public static ExecutorService defaultExecutor() { //Virtual threads where the JDK has them, daemon threads otherwise
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (Exception e) {
+			return Executors.newCachedThreadPool(daemons);
+		}
+	}
+	
+	public CommandHandle submit(final Command command, final JConsole console, final String[] args) {
+		final CommandHandle handle = new CommandHandle(command, args, new Callable<Void>() {
+			public Void call() throws Exception {
+				boolean limited = !command.isUICommand();
+				if (limited) {
+					permits.acquire();
+					holding.set(Boolean.TRUE);
+				}
+				long start = Metrics.start();
+				try {
+					command.perform(console, args);
+				} catch (RuntimeException e) {
+					console.print("\n" + Ansi.style("\"" + command.getCommand() + "\" failed: " + e, Ansi.RED));
+					throw e;
+				} finally {
+					if (limited && holding.get() != null)
+						permits.release();
+					holding.remove();
+					if (start != 0)
+						Metrics.dispatch(command.getCommand()).since(start);
+				}
+				return null;
+			}
+		});
+		if (command.isUICommand()) { //Commands touching the front end run on its UI thread
+			console.getView().invoke(handle);
+			return handle;
+		}
+		schedule(handle, command.getTimeout() > 0 ? command.getTimeout() : timeout, console);
+		executor.execute(handle);
+		return handle;
+	}
+	
+	public CommandHandle submit(final Command[] stages, final String[][] args, final JConsole console, final Pipe out) { //Pipeline, all stages run at once
+		if (stages.length > maxConcurrent) //Every stage needs a permit at the same time
+			throw new IllegalArgumentException("A pipeline of " + stages.length + " commands is over the limit of " + maxConcurrent + " running at once");
+		final CommandHandle handle = new CommandHandle(stages[0], args[0], new Callable<Void>() {
+			public Void call() throws Exception {
+				int n = stages.length;
+				List<FutureTask<Void>> running = new ArrayList<FutureTask<Void>>();
+				permits.acquire(n); //All at once, a stage waiting for a permit could block the ones feeding it
+				try {
+					Pipe in = Pipe.empty();
+					for (int i = 0; i < n; i++) {
+						Pipe next = i == n - 1 ? out : new Pipe();
+						FutureTask<Void> stage = new FutureTask<Void>(stage(stages[i], args[i], console, in, next), null);
+						running.add(stage);
+						executor.execute(stage);
+						in = next;
+					}
+					Throwable failure = null;
+					for (FutureTask<Void> stage : running)
+						try {
+							stage.get();
+						} catch (ExecutionException e) { //Printed by the stage, the first one fails the pipeline
+							if (failure == null)
+								failure = e.getCause();
+						}
+					if (failure instanceof Error)
+						throw (Error) failure;
+					if (failure != null)
+						throw (RuntimeException) failure;
+				} finally {
+					for (FutureTask<Void> stage : running)
+						stage.cancel(true);
+					out.close();
+					permits.release(n);
+				}
+				return null;
+			}
+		});
+		long millis = timeout;
+		for (Command c : stages)
+			millis = Math.max(millis, c.getTimeout());
+		schedule(handle, millis, console);
+		executor.execute(handle);
+		return handle;
+	}
+	
+	private Runnable stage(final Command command, final String[] args, final JConsole console, final Pipe in, final Pipe out) {
+		return new Runnable() {
+			public void run() {
+				StreamAction stream = command.getStreamAction();
+				PipeView view = stream == null ? new PipeView(out) : null;
+				long start = Metrics.start();
+				try {
+					if (stream != null)
+						stream.perform(console, args, in, out);
+					else {
+						in.cancel(); //Plain actions take no input
+						JConsole session = new JConsole(view, console);
+						session.parent = console;
+						command.perform(session, args);
+					}
+				} catch (CancellationException e) { //The stages after it stopped reading
+				} catch (RuntimeException e) {
+					console.print("\n" + Ansi.style("\"" + command.getCommand() + "\" failed: " + e, Ansi.RED));
+					throw e;
+				} finally {
+					in.cancel();
+					if (view != null)
+						view.close();
+					out.close();
+					if (start != 0)
+						Metrics.dispatch(command.getCommand()).since(start);
+				}
+			}
+		};
+	}
+	
+	public void await(CommandHandle handle) throws InterruptedException { //From inside a command, its permit is lent out while it waits
+		//A command waiting for commands it started, like a script, would otherwise deadlock once every permit is held by a waiter
+		if (holding.get() == null) {
+			handle.await();
+			return;
+		}
+		permits.release();
+		holding.remove();
+		try {
+			handle.await();
+		} finally {
+			permits.acquire(); //Interrupted, the command ends without a permit to give back
+			holding.set(Boolean.TRUE);
+		}
+	}
+	
+	private void schedule(final CommandHandle handle, long millis, final JConsole console) { //Cancels the handle after millis, 0 never
+		if (millis <= 0)
+			return;
+		final ScheduledFuture<?> timer = scheduler().schedule(new Runnable() {
+			public void run() {
+				if (handle.cancel())
+					console.print("\n" + Ansi.style("\"" + handle.getCommand().getCommand() + "\" timed out", Ansi.RED));
+			}
+		}, millis, TimeUnit.MILLISECONDS);
+		handle.onDone(new Runnable() {
+			public void run() {
+				timer.cancel(false);
+			}
+		});
+	}
+	
+	static synchronized ScheduledExecutorService scheduler() { //Only for short tasks, every timer of the process runs on its thread
+		if (scheduler == null)
+			scheduler = Executors.newSingleThreadScheduledExecutor(daemons);
+		return scheduler;
+	}
+	
+	public void shutdown() { executor.shutdownNow(); }
+	
+	public int getMaxConcurrent() { return maxConcurrent; }
+	public int getRunning() { return maxConcurrent - permits.availablePermits(); }
+	public long getTimeout() { return timeout; }
+	public void setTimeout(long millis) { timeout = millis; }
+}
@@ -0,0 +1,71 @@
+package zach.jconsole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class CommandHandle extends FutureTask<Void> { //Running or finished command, can be cancelled or awaited
+	private final Command command;
+	private final String[] args;
+	private List<Runnable> listeners = new ArrayList<Runnable>();
+	
+	CommandHandle(Command command, String[] args, Callable<Void> task) {
+		super(task);
+		this.command = command;
+		this.args = args;
+	}
+	
+	protected void done() {
+		List<Runnable> run;
+		synchronized (this) {
+			run = listeners;
+			listeners = null;
+		}
+		for (Runnable r : run)
+			r.run();
+	}
+	
+	public void onDone(Runnable r) { //Runs r on the thread that finishes the command, or now if already finished
+		synchronized (this) {
+			if (listeners != null) {
+				listeners.add(r);
+				return;
+			}
+		}
+		r.run();
+	}
+	
+	public void await() throws InterruptedException {
+		try {
+			get();
+		} catch (ExecutionException | CancellationException e) {}
+	}
+	public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+		try {
+			get(timeout, unit);
+		} catch (ExecutionException | CancellationException e) {
+		} catch (TimeoutException e) {
+			return false;
+		}
+		return true;
+	}
+	public boolean cancel() { return cancel(true); }
+	public boolean isFailed() { //Threw or was cancelled, false while running
+		if (!isDone())
+			return false;
+		try {
+			get();
+			return false;
+		} catch (ExecutionException | CancellationException | InterruptedException e) {
+			return true;
+		}
+	}
+	
+	public final Command getCommand() { return command; }
+	public final String[] getArgs() { return args; }
+}
@@ -0,0 +1,199 @@
+package zach.jconsole;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class CommandHistory implements Closeable { //Bounded ring of executed lines with a trigram index for reverse search
+	//Entries get increasing ids, an id is alive while it is one of the last capacity ids
+	//The file has one entry per line, written at most FLUSH_DELAY millis after it is added; lines with a line break stay out of it
+	
+	static final long FLUSH_DELAY = 1000;
+	
+	private static class Postings { //Growable sorted list of the live ids in ids[start, size)
+		private int[] ids = new int[4];
+		private int start, size;
+		private void add(int id) {
+			if (size > start && ids[size - 1] == id)
+				return;
+			if (size == ids.length) {
+				if (start > size / 2) { //Mostly evicted, reuse the front
+					System.arraycopy(ids, start, ids, 0, size - start);
+					size -= start;
+					start = 0;
+				} else
+					ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+		private void remove(int id) { //Only the oldest id is ever evicted, it is at the front
+			if (size > start && ids[start] == id)
+				start++;
+		}
+		private boolean isEmpty() { return start == size; }
+	}
+	
+	private final int capacity;
+	private String[] entries = new String[64];
+	private int next; //Id the next entry gets
+	private final Map<Long, Postings> index = new HashMap<Long, Postings>();
+	private int cursor; //Id shown by Up/Down, next when past the newest
+	private Writer file;
+	private boolean flushScheduled;
+	private final Runnable flush = new Runnable() {
+		public void run() {
+			flush();
+		}
+	};
+	
+	public CommandHistory(int capacity) {
+		this.capacity = capacity;
+	}
+	public CommandHistory(int capacity, File file) throws IOException { //Loads earlier sessions and appends new lines to file, close writes the last ones
+		this(capacity);
+		if (file.exists()) {
+			try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = in.readLine()) != null)
+					add(line);
+			}
+			if (file.length() > 2L * capacity * 16) //Mostly evicted lines, write back only the live ones
+				try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+					for (int id = oldest(); id < next; id++)
+						out.write(get(id) + "\n"); //Read from the file, so no line breaks
+				}
+		}
+		this.file = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+	}
+	
+	public synchronized void add(String line) {
+		if (line.isEmpty() || (next > oldest() && get(next - 1).equals(line))) {
+			cursor = next;
+			return;
+		}
+		if (next - oldest() == Math.min(capacity, entries.length)) { //Full
+			if (entries.length < capacity)
+				grow();
+			else
+				evict(oldest());
+		}
+		int id = next++;
+		entries[id % entries.length] = line;
+		for (int i = 0; i + 3 <= line.length(); i++) {
+			Long key = trigram(line, i);
+			Postings p = index.get(key);
+			if (p == null)
+				index.put(key, p = new Postings());
+			p.add(id);
+		}
+		cursor = next;
+		if (file != null && line.indexOf('\n') < 0 && line.indexOf('\r') < 0) //Would read back as several entries
+			try {
+				file.write(line);
+				file.write('\n');
+				if (!flushScheduled) {
+					flushScheduled = true;
+					CommandExecutor.scheduler().schedule(flush, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+				}
+			} catch (IOException e) {
+				file = null;
+			}
+	}
+	
+	public synchronized void flush() { //Writes out the lines added since the last flush
+		flushScheduled = false;
+		if (file != null)
+			try {
+				file.flush();
+			} catch (IOException e) {
+				file = null;
+			}
+	}
+	
+	private void evict(int id) { //Takes the entry out of the index, keys left without ids go so the index stays bounded
+		String line = get(id);
+		for (int i = 0; i + 3 <= line.length(); i++) {
+			Long key = trigram(line, i);
+			Postings p = index.get(key);
+			if (p == null)
+				continue;
+			p.remove(id);
+			if (p.isEmpty())
+				index.remove(key);
+		}
+	}
+	
+	private void grow() { //Keeps id % length as the slot of every live entry
+		String[] grown = new String[Math.min(capacity, entries.length * 2)];
+		for (int id = oldest(); id < next; id++)
+			grown[id % grown.length] = entries[id % entries.length];
+		entries = grown;
+	}
+	
+	private static Long trigram(CharSequence s, int i) {
+		return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+	}
+	
+	private int oldest() { return Math.max(0, next - Math.min(capacity, entries.length)); }
+	
+	public synchronized String get(int id) {
+		return id >= oldest() && id < next ? entries[id % entries.length] : null;
+	}
+	public synchronized int size() { return next - oldest(); }
+	synchronized int indexSize() { return index.size(); } //Distinct trigrams of the live entries
+	
+	public synchronized String previous() { //Up, stays on the oldest entry
+		if (cursor > oldest())
+			cursor--;
+		return get(cursor);
+	}
+	public synchronized String next() { //Down, null once past the newest entry
+		if (cursor < next)
+			cursor++;
+		return get(cursor);
+	}
+	public synchronized void reset() { cursor = next; }
+	
+	public synchronized int search(String query, int before) { //Newest id below before containing query, -1 if none
+		int oldest = oldest();
+		before = Math.min(before, next);
+		if (query.length() < 3) { //Too short for the index, short queries match something recent anyway
+			for (int id = before - 1; id >= oldest; id--)
+				if (get(id).contains(query))
+					return id;
+			return -1;
+		}
+		Postings rarest = null;
+		for (int i = 0; i + 3 <= query.length(); i++) {
+			Postings p = index.get(trigram(query, i));
+			if (p == null)
+				return -1;
+			if (rarest == null || p.size - p.start < rarest.size - rarest.start)
+				rarest = p;
+		}
+		int i = Arrays.binarySearch(rarest.ids, rarest.start, rarest.size, before);
+		for (i = (i < 0 ? -i - 1 : i) - 1; i >= rarest.start; i--)
+			if (get(rarest.ids[i]).contains(query))
+				return rarest.ids[i];
+		return -1;
+	}
+	public int search(String query) { return search(query, Integer.MAX_VALUE); }
+	
+	public synchronized void close() throws IOException {
+		if (file != null)
+			file.close();
+		file = null;
+	}
+}
@@ -0,0 +1,5 @@
+package zach.jconsole;
+
+public interface CommandListener {
+	public void commandChanged(Command oldCommand, Command newCommand); //null old when added, null new when removed
+}
@@ -0,0 +1,247 @@
+package zach.jconsole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class CommandRegistry implements Iterable<Command> { //Trie of commands keyed by lower cased name
+	//Nodes are never modified once published: writers copy the path they change and swap the root,
+	//so readers walk a consistent snapshot without locking
+
+	private static final char[] NO_KEYS = new char[0];
+	private static final Node[] NO_CHILDREN = new Node[0];
+	private static final Command[] NO_COMMANDS = new Command[0];
+	private static final Node EMPTY = new Node(NO_KEYS, NO_CHILDREN, NO_COMMANDS);
+
+	private static final class Node {
+		private final char[] keys; //Sorted, parallel to children
+		private final Node[] children;
+		private final Command[] commands; //Every name that folds to this node, usually one
+
+		private Node(char[] keys, Node[] children, Command[] commands) {
+			this.keys = keys;
+			this.children = children;
+			this.commands = commands;
+		}
+
+		private Node child(char c) {
+			int i = Arrays.binarySearch(keys, c);
+			return i >= 0 ? children[i] : null;
+		}
+		private Node withChild(char c, Node child) { //Copy with child set, or dropped if null
+			int i = Arrays.binarySearch(keys, c);
+			if (i >= 0 && child != null) {
+				Node[] n = children.clone();
+				n[i] = child;
+				return new Node(keys, n, commands);
+			}
+			if (i >= 0) {
+				char[] k = new char[keys.length - 1];
+				Node[] n = new Node[children.length - 1];
+				System.arraycopy(keys, 0, k, 0, i);
+				System.arraycopy(children, 0, n, 0, i);
+				System.arraycopy(keys, i + 1, k, i, k.length - i);
+				System.arraycopy(children, i + 1, n, i, n.length - i);
+				return new Node(k, n, commands);
+			}
+			if (child == null)
+				return this;
+			i = -i - 1;
+			char[] k = new char[keys.length + 1];
+			Node[] n = new Node[children.length + 1];
+			System.arraycopy(keys, 0, k, 0, i);
+			System.arraycopy(children, 0, n, 0, i);
+			System.arraycopy(keys, i, k, i + 1, keys.length - i);
+			System.arraycopy(children, i, n, i + 1, children.length - i);
+			k[i] = c;
+			n[i] = child;
+			return new Node(k, n, commands);
+		}
+		private Node withCommands(Command[] commands) {
+			if (commands.length == 0 && keys.length == 0)
+				return null;
+			return new Node(keys, children, commands);
+		}
+	}
+
+	private volatile Node root = EMPTY;
+	private volatile int size;
+	private final List<CommandListener> listeners = new CopyOnWriteArrayList<CommandListener>();
+
+	private static char fold(char c) { return Character.toLowerCase(c); }
+
+	private static Node find(Node node, CharSequence name) {
+		for (int i = 0; i < name.length() && node != null; i++)
+			node = node.child(fold(name.charAt(i)));
+		return node;
+	}
+
+	private static int indexOf(Node node, String name) {
+		for (int i = 0; i < node.commands.length; i++)
+			if (node.commands[i].getCommand().equals(name))
+				return i;
+		return -1;
+	}
+
+	private Node update(Node node, String name, int depth, Command c, boolean mustExist, Command[] previous) {
+		//Returns the new node, or node itself if nothing changed; c == null removes
+		if (node == null)
+			node = EMPTY;
+		if (depth < name.length()) {
+			char key = fold(name.charAt(depth));
+			Node child = node.child(key);
+			if (child == null && (c == null || mustExist))
+				return node;
+			Node updated = update(child, name, depth + 1, c, mustExist, previous);
+			if (updated == child)
+				return node;
+			Node copy = node.withChild(key, updated);
+			return copy.keys.length == 0 && copy.commands.length == 0 && depth > 0 ? null : copy;
+		}
+		int i = indexOf(node, name);
+		if (i < 0 && (c == null || mustExist))
+			return node;
+		Command[] commands;
+		if (i >= 0) {
+			previous[0] = node.commands[i];
+			if (c != null) {
+				commands = node.commands.clone();
+				commands[i] = c;
+			} else {
+				commands = new Command[node.commands.length - 1];
+				System.arraycopy(node.commands, 0, commands, 0, i);
+				System.arraycopy(node.commands, i + 1, commands, i, commands.length - i);
+			}
+		} else {
+			commands = Arrays.copyOf(node.commands, node.commands.length + 1);
+			commands[commands.length - 1] = c;
+		}
+		return node.withCommands(commands);
+	}
+
+	private synchronized Command write(String name, Command c, boolean mustExist) {
+		Command[] previous = new Command[1];
+		Node updated = update(root, name, 0, c, mustExist, previous);
+		if (updated == root)
+			return null;
+		root = updated == null ? EMPTY : updated;
+		if (previous[0] == null)
+			size++;
+		else if (c == null)
+			size--;
+		for (CommandListener l : listeners)
+			l.commandChanged(previous[0], c);
+		return previous[0];
+	}
+
+	public Command add(Command c) { //Returns the command previously registered under the same name
+		return write(c.getCommand(), c, false);
+	}
+	public Command replace(Command c) { //Only swaps an existing command, returns it or null if there was none
+		return write(c.getCommand(), c, true);
+	}
+	public Command remove(String name) {
+		return write(name, null, true);
+	}
+
+	public void addListener(CommandListener l) { listeners.add(l); }
+	public void removeListener(CommandListener l) { listeners.remove(l); }
+
+	public Command get(CharSequence name, boolean ignoreCase) {
+		Node node = find(root, name);
+		if (node == null || node.commands.length == 0)
+			return null;
+		for (Command c : node.commands)
+			if (c.getCommand().contentEquals(name))
+				return c;
+		return ignoreCase ? node.commands[0] : null;
+	}
+
+	public List<Command> complete(String prefix, boolean ignoreCase, int limit) { //Commands starting with prefix, in order
+		return complete(root, prefix, ignoreCase, limit);
+	}
+	private static List<Command> complete(Node root, String prefix, boolean ignoreCase, int limit) {
+		List<Command> out = new ArrayList<Command>();
+		Node node = find(root, prefix);
+		if (node != null)
+			collect(node, ignoreCase ? null : prefix, limit, out);
+		return out;
+	}
+
+	public String commonPrefix(String prefix, boolean ignoreCase) { //Longest name prefix shared by every completion
+		Node snapshot = root;
+		Node node = find(snapshot, prefix);
+		if (node == null)
+			return prefix;
+		int depth = prefix.length();
+		while (node.commands.length == 0 && node.children.length == 1) {
+			node = node.children[0];
+			depth++;
+		}
+		List<Command> first = complete(snapshot, prefix, ignoreCase, 1);
+		if (first.isEmpty())
+			return prefix;
+		return prefix + first.get(0).getCommand().substring(prefix.length(), depth);
+	}
+
+	private static boolean collect(Node node, String prefix, int limit, List<Command> out) {
+		for (Command c : node.commands) {
+			if (out.size() >= limit)
+				return false;
+			if (prefix == null || c.getCommand().startsWith(prefix))
+				out.add(c);
+		}
+		for (Node child : node.children)
+			if (!collect(child, prefix, limit, out))
+				return false;
+		return true;
+	}
+
+	public int size() { return size; }
+
+	public Iterator<Command> iterator() { //Walks a snapshot lazily, in the order complete returns
+		return new Walk(root);
+	}
+
+	private static final class Walk implements Iterator<Command> { //Pre-order over the trie with an explicit stack, no list is built
+		private Node[] nodes = new Node[16];
+		private int[] next = new int[16]; //Per node on the stack, its commands and then its children
+		private int depth;
+		private Command ahead;
+
+		private Walk(Node root) {
+			nodes[0] = root;
+			depth = 1;
+		}
+
+		public boolean hasNext() {
+			while (ahead == null && depth > 0) {
+				Node node = nodes[depth - 1];
+				int i = next[depth - 1]++;
+				if (i < node.commands.length)
+					ahead = node.commands[i];
+				else if (i - node.commands.length < node.children.length) {
+					if (depth == nodes.length) {
+						nodes = Arrays.copyOf(nodes, depth * 2);
+						next = Arrays.copyOf(next, depth * 2);
+					}
+					nodes[depth] = node.children[i - node.commands.length];
+					next[depth++] = 0;
+				} else
+					nodes[--depth] = null;
+			}
+			return ahead != null;
+		}
+		public Command next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Command c = ahead;
+			ahead = null;
+			return c;
+		}
+		public void remove() { throw new UnsupportedOperationException(); }
+	}
+}
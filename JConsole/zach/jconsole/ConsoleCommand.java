@@ -0,0 +1,30 @@
+package zach.jconsole;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ConsoleCommand { //Marks a method as a command for JConsole.addCommands
+	//Parameters are filled from the typed arguments in order: String, primitives and their boxes, enums (any case)
+	//and types with a static valueOf(String), decode(String) or a String constructor; a JConsole parameter gets the console running it
+	//and a last String[] parameter takes the remaining arguments
+	
+	String name() default ""; //The method name if empty
+	String help() default "";
+	boolean ui() default false; //Run on the front end's UI thread, see Command.isUICommand
+	long timeout() default 0; //Millis, 0 uses the executor's timeout
+	
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.PARAMETER)
+	public @interface Arg {
+		String value(); //Name in the usage line
+		String help() default ""; //Line in the help text, the name if empty
+		String defaultValue() default ""; //Used when the argument is left out, setting it makes the argument optional
+		boolean optional() default false; //Left out it is null, so not for primitives
+		long min() default Long.MIN_VALUE; //Range of number arguments
+		long max() default Long.MAX_VALUE;
+	}
+}
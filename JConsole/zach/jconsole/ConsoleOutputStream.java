@@ -0,0 +1,65 @@
+package zach.jconsole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+public class ConsoleOutputStream extends OutputStream { //Decodes bytes into a ConsoleWriter through reused buffers
+	//A multi-byte char split between two writes stays in the input buffer until the rest arrives
+	
+	private final ConsoleWriter out;
+	private final CharsetDecoder decoder;
+	private final ByteBuffer in = ByteBuffer.allocate(8192);
+	private final CharBuffer chars = CharBuffer.allocate(8192);
+	
+	public ConsoleOutputStream(ConsoleWriter out, Charset charset) {
+		this.out = out;
+		decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+	
+	public synchronized void write(byte[] b, int offset, int length) {
+		while (length > 0) {
+			int n = Math.min(length, in.remaining());
+			in.put(b, offset, n);
+			offset += n;
+			length -= n;
+			decode();
+		}
+	}
+	public synchronized void write(int b) {
+		in.put((byte) b);
+		decode();
+	}
+	
+	private void decode() {
+		in.flip();
+		while (true) {
+			boolean overflow = decoder.decode(in, chars, false).isOverflow();
+			out.write(chars.array(), 0, chars.position());
+			chars.clear();
+			if (!overflow)
+				break;
+		}
+		in.compact();
+	}
+	
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+	public synchronized void close() throws IOException {
+		in.flip();
+		decoder.decode(in, chars, true);
+		decoder.flush(chars);
+		out.write(chars.array(), 0, chars.position());
+		chars.clear();
+		in.clear();
+		decoder.reset();
+		out.close();
+	}
+}
@@ -0,0 +1,354 @@
+package zach.jconsole;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConsoleServer implements Runnable, Closeable { //Line protocol over NIO, every connection gets its own session console
+
+	private static final int MAX_LINE = 1 << 16; //Chars of one command line, longer ones end the session
+
+	private final JConsole console;
+	private final Selector selector;
+	private final ServerSocketChannel server;
+	private final SelectionKey accepting;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>(); //Work handed to the selector thread
+	private final ExecutorService ui = Executors.newSingleThreadExecutor(new ThreadFactory() { //UI commands go through it, a headless console runs them on it
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "JConsole server UI");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	private final ThreadLocal<Boolean> uiCommand = new ThreadLocal<Boolean>(); //Set while a session's UI command runs
+	private volatile Thread thread;
+	private volatile int maxPending = 1 << 20; //Output bytes queued per session before producers wait
+	private volatile int sessions;
+
+	public ConsoleServer(JConsole console, InetSocketAddress address) throws IOException {
+		this.console = console;
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.bind(address, 1024);
+		server.configureBlocking(false);
+		accepting = server.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	public void start() {
+		Thread t = new Thread(this, "JConsole server");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	public void run() {
+		thread = Thread.currentThread();
+		try {
+			while (server.isOpen()) {
+				selector.select();
+				Runnable task;
+				while ((task = tasks.poll()) != null)
+					task.run();
+				for (SelectionKey key : selector.selectedKeys()) {
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable())
+						accept();
+					else {
+						Session s = (Session) key.attachment();
+						try {
+							if (key.isReadable())
+								s.read();
+							if (key.isValid() && key.isWritable())
+								s.write();
+						} catch (IOException e) {
+							s.disconnect();
+						}
+					}
+				}
+				selector.selectedKeys().clear();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			for (SelectionKey key : selector.keys())
+				if (key.attachment() instanceof Session)
+					((Session) key.attachment()).disconnect();
+			ui.shutdown();
+			try {
+				server.close(); //Already closed unless the loop failed
+				selector.close();
+			} catch (IOException e) {}
+		}
+	}
+
+	private void accept() {
+		while (true) {
+			SocketChannel channel;
+			try {
+				channel = server.accept();
+			} catch (IOException e) { //Out of file descriptors for example, the sessions already connected keep being served
+				pauseAccepting();
+				return;
+			}
+			if (channel == null)
+				return;
+			try {
+				channel.configureBlocking(false);
+				Session s = new Session(channel);
+				s.key = channel.register(selector, SelectionKey.OP_READ, s);
+				sessions++;
+				s.print(">");
+			} catch (IOException e) {
+				try {
+					channel.close();
+				} catch (IOException ex) {}
+			}
+		}
+	}
+
+	private void pauseAccepting() { //Stops selecting on accept for a moment, the failed connection would wake the selector again at once
+		accepting.interestOps(0);
+		CommandExecutor.scheduler().schedule(new Runnable() {
+			public void run() {
+				submit(new Runnable() {
+					public void run() {
+						if (accepting.isValid())
+							accepting.interestOps(SelectionKey.OP_ACCEPT);
+					}
+				});
+			}
+		}, 100, TimeUnit.MILLISECONDS);
+	}
+
+	private void submit(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	public void close() throws IOException {
+		server.close();
+		selector.wakeup();
+	}
+
+	public int getPort() { return server.socket().getLocalPort(); }
+	public int getSessions() { return sessions; }
+	public int getMaxPending() { return maxPending; }
+	public void setMaxPending(int bytes) { maxPending = bytes; }
+
+	private class Session implements ConsoleView {
+		private final SocketChannel channel;
+		private final JConsole session;
+		private SelectionKey key;
+
+		private final ByteBuffer in = ByteBuffer.allocate(4096);
+		private final CharBuffer chars = CharBuffer.allocate(4096);
+		private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private final StringBuilder line = new StringBuilder();
+		private final Queue<String> lines = new ArrayDeque<String>(); //Received while a command was running
+		private CommandHandle running;
+
+		private final ArrayDeque<ByteBuffer> out = new ArrayDeque<ByteBuffer>(); //Guarded by this
+		private int pending;
+		private final AtomicBoolean writeScheduled = new AtomicBoolean();
+		private volatile boolean closing;
+		private volatile boolean closed;
+
+		private Session(SocketChannel channel) {
+			this.channel = channel;
+			session = new JConsole(this, console);
+		}
+
+		private void read() throws IOException { //Selector thread
+			int n = channel.read(in);
+			if (n < 0) {
+				disconnect();
+				return;
+			}
+			in.flip();
+			decoder.decode(in, chars, false);
+			in.compact();
+			chars.flip();
+			while (chars.hasRemaining()) {
+				char c = chars.get();
+				if (c == '\n') {
+					int end = line.length();
+					if (end > 0 && line.charAt(end - 1) == '\r')
+						end--;
+					lines.add(line.substring(0, end));
+					line.setLength(0);
+				} else if (line.length() < MAX_LINE)
+					line.append(c);
+				else { //A client that never ends its line would grow the buffer without bound
+					print("\n" + Ansi.style("Lines are limited to " + MAX_LINE + " characters", Ansi.RED));
+					close();
+					chars.clear();
+					return;
+				}
+			}
+			chars.clear();
+			next();
+		}
+
+		private void next() { //Runs queued lines one at a time, selector thread
+			while (running == null && !closing && !lines.isEmpty()) {
+				CommandHandle handle = session.execute(lines.poll());
+				if (handle != null && !handle.isDone()) {
+					running = handle;
+					handle.onDone(new Runnable() {
+						public void run() {
+							submit(new Runnable() {
+								public void run() {
+									running = null;
+									prompt();
+									next();
+								}
+							});
+						}
+					});
+				} else
+					prompt();
+			}
+			updateInterest();
+		}
+
+		private void prompt() {
+			if (!closing)
+				print("\n>");
+		}
+
+		public void print(String text) { //Any thread, waits while the client is too far behind
+			if (closed)
+				return;
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			synchronized (this) {
+				out.add(ByteBuffer.wrap(bytes));
+				pending += bytes.length;
+			}
+			scheduleWrite();
+			if (Thread.currentThread() == thread || uiCommand.get() != null) //Waiting there would stall every session, or the window
+				return;
+			synchronized (this) {
+				while (pending > maxPending && !closed)
+					try {
+						wait(100);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+			}
+		}
+
+		private void scheduleWrite() {
+			if (writeScheduled.getAndSet(true))
+				return;
+			if (Thread.currentThread() == thread)
+				updateInterest();
+			else
+				submit(new Runnable() {
+					public void run() {
+						updateInterest();
+					}
+				});
+		}
+
+		private void write() throws IOException { //Selector thread
+			synchronized (this) {
+				writeScheduled.set(false);
+				while (!out.isEmpty()) {
+					ByteBuffer b = out.peek();
+					int n = channel.write(b);
+					pending -= n;
+					if (b.hasRemaining())
+						break;
+					out.poll();
+				}
+				if (pending <= maxPending)
+					notifyAll();
+			}
+			updateInterest();
+		}
+
+		private void updateInterest() { //Selector thread
+			if (!key.isValid())
+				return;
+			boolean empty;
+			int queued;
+			synchronized (this) {
+				empty = out.isEmpty();
+				queued = pending;
+			}
+			if (closing && empty) {
+				disconnect();
+				return;
+			}
+			int ops = 0;
+			if (!empty)
+				ops |= SelectionKey.OP_WRITE;
+			if (!closing && queued <= maxPending && lines.size() < 64) //Stop reading from clients that do not keep up
+				ops |= SelectionKey.OP_READ;
+			key.interestOps(ops);
+			if (empty)
+				writeScheduled.set(false);
+		}
+
+		private void disconnect() {
+			if (closed)
+				return;
+			closed = true;
+			sessions--;
+			session.unwatchAll();
+			if (running != null)
+				running.cancel();
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {}
+			synchronized (this) {
+				out.clear();
+				pending = 0;
+				notifyAll();
+			}
+		}
+
+		public void clear() {}
+		public void close() { //Flushes what is queued, then hangs up
+			closing = true;
+			scheduleWrite();
+		}
+		public void invoke(final Runnable r) { //UI commands run on the served console's UI thread, never the selector
+			ui.execute(new Runnable() {
+				public void run() {
+					console.getView().invoke(new Runnable() {
+						public void run() {
+							uiCommand.set(Boolean.TRUE);
+							try {
+								r.run();
+							} finally {
+								uiCommand.remove();
+							}
+						}
+					});
+				}
+			});
+		}
+	}
+}
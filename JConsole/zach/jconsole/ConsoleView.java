@@ -0,0 +1,8 @@
+package zach.jconsole;
+
+public interface ConsoleView { //Front end that shows a JConsole's output
+	public void print(String text); //Must be safe from any thread
+	public void clear();
+	public void close();
+	public void invoke(Runnable r); //Runs r on the front end's UI thread
+}
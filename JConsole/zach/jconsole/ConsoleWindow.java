@@ -0,0 +1,1165 @@
+package zach.jconsole;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.BorderFactory;
+import javax.swing.Box;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JMenuBar;
+import javax.swing.JPanel;
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+import javax.swing.plaf.basic.BasicTextAreaUI;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.View;
+
+public class ConsoleWindow implements ConsoleView { //Swing front end of a JConsole
+	
+	private final JConsole console;
+	
+	private JFrame window;
+	private JTextArea textField;
+	private Font font = new Font("CONSOLAS", 0, 12);
+	private int alpha;
+	private JScrollPane scroll;
+	private Scrollback scrollback = new Scrollback();
+	private OutputQueue output = new OutputQueue();
+	private AtomicBoolean flushScheduled = new AtomicBoolean();
+	private StringBuilder flushBuffer = new StringBuilder();
+	private Timer flushTimer;
+	private CommandHandle running;
+	private boolean prompting; //The prompt is drawn and takes input, no command is running
+	private final InputLine inputLine = new InputLine();
+	private volatile boolean virtualRendering;
+	private final StyleRuns styles = new StyleRuns();
+	private boolean searching;
+	private String searchQuery;
+	private int searchMatch;
+	private ScrollbackSearch finder;
+	private boolean finding;
+	private String findQuery;
+	private String findInput; //Input line to put back when find mode ends
+	private int findEnd;
+	private BlockingQueue<Integer> paging; //Line requests to the running pager, null when there is none
+	private boolean pageShown; //The pager shows its prompt and waits
+	private static final String MORE = "-- More -- (space: page, enter: line, q: quit)";
+	private RateCounter paints = new RateCounter();
+	private WatchRegion watches; //Above the scrollback while anything is watched
+	private static final Color ICON_COLOR = Color.decode("#0FFFF0"); //Just a nice green
+	private static BufferedImage icon;
+	private static boolean lookAndFeel; //EDT only
+	
+	private JMenuBar menu;
+	private int[] prevPos = new int[2];
+	private JLabel xButton;
+	private JLabel maxButton;
+	private JLabel minButton;
+	
+	private boolean resize = true;
+	private boolean max = false;
+	private JPanel east;
+	private JPanel south;
+	private JPanel west;
+	private JPanel sw;
+	private JPanel se;
+	
+	ConsoleWindow(JConsole console, String title, boolean exitOnClose) {
+		this.console = console;
+		alpha = 0x99;
+		
+		window = new JFrame(title) {
+			private static final long serialVersionUID = 1L;
+			public void paint(Graphics g) {
+				paints.mark();
+				long start = Metrics.start();
+				g.clearRect(2, menu.getHeight() + 2, getWidth() - 4, getHeight()-menu.getHeight() - 4);
+				g.setColor(getBackground());
+				g.fillRect(2, menu.getHeight() + 2, getWidth() - 4, getHeight()-menu.getHeight() - 4);
+				super.paint(g);
+				Metrics.paint.since(start);
+			}
+		};
+		textField = new JTextArea() {
+			private static final long serialVersionUID = 1L;
+			public void paintComponent(Graphics g) {
+				Rectangle clip = g.getClipBounds(); //Only the visible part, the area itself can be huge
+				g.clearRect(clip.x, clip.y, clip.width, clip.height);
+				g.setColor(getBackground());
+				g.fillRect(clip.x, clip.y, clip.width, clip.height);
+				super.paintComponent(g);
+			}
+			public void repaint(long tm, int x, int y, int width, int height) {
+				repaintWindow(this, tm, x, y, width, height);
+			}
+			public void updateUI() {
+				setUI(new BasicTextAreaUI() {
+					public View create(Element elem) {
+						return virtualRendering ? new LineView(elem, styles) : new StyledView(elem, styles);
+					}
+				});
+			}
+		};
+		textField.setOpaque(false);
+		finder = new ScrollbackSearch(textField);
+		textField.getDocument().addDocumentListener(inputLine);
+		menu = new JMenuBar();
+		xButton = new JLabel(" X ");
+		maxButton = new JLabel(" \u25A0 ");
+		minButton = new JLabel(" _ ");
+		flushTimer = new Timer(16, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				flush();
+			}
+		});
+		flushTimer.setRepeats(false);
+		
+		//Window
+		window.setDefaultCloseOperation(exitOnClose ? JFrame.EXIT_ON_CLOSE
+												 : JFrame.DISPOSE_ON_CLOSE);
+		window.setResizable(false);
+		window.setUndecorated(true);
+		window.setJMenuBar(menu);
+		window.setBackground(new Color(0, 0, 0, alpha));
+		
+		JLabel image = new JLabel() { //Drawn directly, the window icon image is made after the window shows
+			private static final long serialVersionUID = 1L;
+			public void paintComponent(Graphics g) {
+				g.setColor(ICON_COLOR);
+				g.fillRoundRect(1, 1, 21, 21, 9, 9);
+			}
+		};
+		image.setPreferredSize(new Dimension(25, 23));
+		menu.add(image);
+		menu.add(new JLabel(title));
+		menu.setBackground(Color.LIGHT_GRAY);
+		menu.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY, 4));
+		menu.addMouseListener(new MouseListener() {
+			public void mouseClicked(MouseEvent e) {}
+			public void mouseEntered(MouseEvent e) {}
+			public void mouseExited(MouseEvent e) {}
+			public void mousePressed(MouseEvent e) {
+				prevPos[0] = e.getX();
+				prevPos[1] = e.getY();
+			}
+			public void mouseReleased(MouseEvent e) {
+				if (e.getYOnScreen() <= 1 && resize) {
+					setMaximized(true);
+				}
+				if (window.getY() < 0)
+					window.setLocation(window.getX(), 0);
+				else if (window.getY() >= GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds().height - menu.getHeight())
+					window.setLocation(window.getX(),
+							GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds().height - menu.getHeight());
+			}
+		});
+		menu.addMouseMotionListener(new MouseMotionListener() {
+			public void mouseDragged(MouseEvent e) {
+				if (max) {
+					setMaximized(false);
+					window.setLocation(e.getXOnScreen() - window.getWidth()/2, 11);
+					prevPos[0] = window.getWidth() / 2;
+					prevPos[1] = 11;
+				} else
+				window.setLocation(window.getX() + e.getX() - prevPos[0], window.getY() + e.getY() - prevPos[1]);
+			}
+			public void mouseMoved(MouseEvent e) {}
+		});
+		menu.add(Box.createHorizontalGlue());		
+		menu.add(minButton);
+		minButton.setFont(font);
+		minButton.setBorder(BorderFactory.createLineBorder(new Color(0x334433)));
+		minButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+		minButton.addMouseListener(new MouseListener() {
+			public void mouseClicked(MouseEvent e) {
+				window.setState(JFrame.ICONIFIED);
+			}
+			public void mouseEntered(MouseEvent e) {}
+			public void mouseExited(MouseEvent e) {}
+			public void mousePressed(MouseEvent e) {}
+			public void mouseReleased(MouseEvent e) {}
+		});
+		menu.add(maxButton);
+		maxButton.setFont(font);
+		maxButton.setBorder(BorderFactory.createLineBorder(new Color(0x334433)));
+		maxButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+		maxButton.addMouseListener(new MouseListener() {
+			public void mouseClicked(MouseEvent e) {
+				setMaximized(!max);
+			}
+			public void mouseEntered(MouseEvent e) {}
+			public void mouseExited(MouseEvent e) {}
+			public void mousePressed(MouseEvent e) {}
+			public void mouseReleased(MouseEvent e) {}
+		});
+		menu.add(xButton);
+		xButton.setFont(font);
+		xButton.setBorder(BorderFactory.createLineBorder(new Color(0x334433)));
+		xButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+		xButton.addMouseListener(new MouseListener() {
+			public void mouseClicked(MouseEvent e) {
+				close();
+			}
+			public void mouseEntered(MouseEvent e) {}
+			public void mouseExited(MouseEvent e) {}
+			public void mousePressed(MouseEvent e) {}
+			public void mouseReleased(MouseEvent e) {}
+		});
+		menu.add(new JLabel("  "));
+		
+		//Text Area
+		textField.setSize(400, 253);
+		textField.setFont(font);
+		textField.setBackground(new Color(0, 0, 0, alpha));
+		textField.setForeground(new Color(0xFF, 0xFF, 0xFF, 0xFF));
+		textField.setCaretColor(new Color(0xFF, 0xFF, 0xFF, 0xFF));
+		textField.setLineWrap(false);
+		//Text Area Event Listeners
+		textField.addKeyListener(new KeyListener() {
+			public void keyPressed(KeyEvent e) {
+				if (paging != null && pageKey(e))
+					return;
+				if (searching && searchKey(e))
+					return;
+				if (finding && findKey(e))
+					return;
+				switch (e.getKeyCode()) {
+				case KeyEvent.VK_ENTER: //Override keys
+					e.consume();
+					if (running == null)
+						newLine(true);
+					break;
+				case KeyEvent.VK_BACK_SPACE:
+					if (!canBackSpace())
+						e.consume();
+					break;
+				case KeyEvent.VK_LEFT:
+					if (!canBackSpace())
+						e.consume();
+					break;
+				case KeyEvent.VK_UP:
+					e.consume();
+					String previous = console.getHistory().previous();
+					if (previous != null)
+						setInput(previous);
+					break;
+				case KeyEvent.VK_DOWN:
+					e.consume();
+					String next = console.getHistory().next();
+					setInput(next != null ? next : "");
+					break;
+				case KeyEvent.VK_TAB:
+					e.consume();
+					if (!complete())
+						copyLastCommand();
+					break;
+				case KeyEvent.VK_F:
+					if (e.isControlDown()) {
+						e.consume();
+						finding = true;
+						findQuery = "";
+						findInput = getInput();
+						findEnd = inputLine.start();
+						setInput("(find)`': ");
+					}
+					break;
+				case KeyEvent.VK_F3:
+					e.consume();
+					finder.next(!e.isShiftDown());
+					break;
+				case KeyEvent.VK_R:
+					if (e.isControlDown()) {
+						e.consume();
+						searching = true;
+						searchQuery = "";
+						searchMatch = -1;
+						showSearch();
+					}
+					break;
+				}
+			}
+			public void keyReleased(KeyEvent e) {}
+			public void keyTyped(KeyEvent e) {
+				if (paging != null && !e.isControlDown()) {
+					e.consume();
+					return;
+				}
+				if (finding) {
+					e.consume();
+					char c = e.getKeyChar();
+					if (c >= ' ' && c != KeyEvent.CHAR_UNDEFINED && c != 0x7F && !e.isControlDown()) {
+						findQuery += c;
+						find(findQuery);
+						setInput("(find)`" + findQuery + "': ");
+					}
+					return;
+				}
+				if (searching) {
+					e.consume();
+					char c = e.getKeyChar();
+					if (c >= ' ' && c != KeyEvent.CHAR_UNDEFINED && c != 0x7F && !e.isControlDown()) {
+						searchQuery += c;
+						searchMatch = console.getHistory().search(searchQuery);
+						showSearch();
+					}
+					return;
+				}
+				if (textField.getCaretPosition() < getLastLine())
+					e.consume();
+			}
+		});
+		textField.addMouseListener(new MouseListener() {
+			public void mouseClicked(MouseEvent e) {
+				e.consume();
+				if (textField.getCaretPosition() < getLastLine())
+					textField.setCaretPosition(textField.getDocument().getLength());
+			}
+			public void mouseEntered(MouseEvent e) {}
+			public void mouseExited(MouseEvent e) {}
+			public void mousePressed(MouseEvent e) {}
+			public void mouseReleased(MouseEvent e) {}
+		});
+		textField.addMouseMotionListener(new MouseMotionListener() {
+			public void mouseDragged(MouseEvent e) {
+				int lastLine = getLastLine();
+				if (textField.getCaretPosition() < lastLine)
+					textField.setCaretPosition(lastLine);
+			}
+			public void mouseMoved(MouseEvent e) {}
+		});
+		
+		
+		//Scroll Pane
+		scroll = new JScrollPane(textField);
+		scroll.setBorder(null);
+		finder.watch(scroll.getViewport());
+		scroll.addMouseWheelListener(new MouseWheelListener() {
+			public void mouseWheelMoved(MouseWheelEvent e) { //Scrolling down at the end of a page pulls more lines
+				JScrollBar bar = scroll.getVerticalScrollBar();
+				if (pageShown && e.getWheelRotation() > 0 && bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum())
+					more(e.getWheelRotation() * 3);
+			}
+		});
+		
+		//Resize grabbing stuff, the listeners come after the window shows
+		west = new JPanel();
+		west.setBackground(Color.LIGHT_GRAY);
+		west.setPreferredSize(new Dimension(5, 100));
+		east = new JPanel();
+		east.setBackground(Color.LIGHT_GRAY);
+		east.setPreferredSize(new Dimension(5, 100));
+		south = new JPanel();
+		south.setBackground(Color.LIGHT_GRAY);
+		south.setPreferredSize(new Dimension(100, 5));
+		sw = new JPanel();
+		sw.setBackground(Color.LIGHT_GRAY);
+		sw.setPreferredSize(new Dimension(5, 5));
+		se = new JPanel();
+		se.setBackground(Color.LIGHT_GRAY);
+		se.setPreferredSize(new Dimension(5, 5));
+		
+		south.setLayout(new BorderLayout());
+		south.add(sw, BorderLayout.WEST);
+		south.add(se, BorderLayout.EAST);
+		
+		//Finalize window
+		window.add(scroll, BorderLayout.CENTER);
+		window.add(west, BorderLayout.WEST);
+		window.add(east, BorderLayout.EAST);
+		window.add(south, BorderLayout.SOUTH);
+		window.setSize(textField.getSize());
+		window.setLocationRelativeTo(null);
+	}
+	
+	static ConsoleWindow create(final JConsole console, final String title, final boolean exitOnClose) { //Builds the window on the EDT
+		if (SwingUtilities.isEventDispatchThread())
+			return new ConsoleWindow(console, title, exitOnClose);
+		final ConsoleWindow[] window = new ConsoleWindow[1];
+		try {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				public void run() {
+					window[0] = new ConsoleWindow(console, title, exitOnClose);
+				}
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while creating the console window", e);
+		} catch (InvocationTargetException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		return window[0];
+	}
+	
+	void open(final String initText) { //Shows the first prompt, then does the setup that can wait
+		invoke(new Runnable() {
+			public void run() {
+				append(initText);
+				newLine(false);
+				window.setVisible(true);
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						initResize();
+						window.setIconImage(icon());
+						if (installLookAndFeel())
+							SwingUtilities.updateComponentTreeUI(window);
+					}
+				});
+			}
+		});
+	}
+	
+	private static synchronized BufferedImage icon() { //Shared by every window
+		if (icon == null) {
+			icon = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+			Graphics g = icon.getGraphics();
+			g.setColor(ICON_COLOR);
+			g.fillRoundRect(10, 10, 236, 236, 100, 100);
+			g.dispose();
+		}
+		return icon;
+	}
+	
+	private static boolean installLookAndFeel() { //Native look and feel, once per process, true if it changed now
+		if (lookAndFeel)
+			return false;
+		lookAndFeel = true;
+		try {
+			UIManager.setLookAndFeel(
+					UIManager.getSystemLookAndFeelClassName());
+		} catch(Exception e) {
+			try {
+				UIManager.setLookAndFeel(
+						UIManager.getCrossPlatformLookAndFeelClassName());
+			} catch (Exception e1) {
+				e.printStackTrace();
+			}
+		}
+		return true;
+	}
+	
+	private void initResize() { //Drag handling of the border panels, not needed for the first prompt
+		setResizable(resize);
+		west.addMouseListener(new MouseListener() {
+			public void mouseClicked(MouseEvent e) {}
+			public void mouseReleased(MouseEvent e) {}
+			public void mouseEntered(MouseEvent e) {}
+			public void mouseExited(MouseEvent e) {}
+			public void mousePressed(MouseEvent e) {
+				prevPos[0] = e.getX();
+			}
+		});
+		west.addMouseMotionListener(new MouseMotionListener() {
+			public void mouseMoved(MouseEvent e) {}
+			public void mouseDragged(MouseEvent e) {
+				if (resize) {
+					if (max) {
+						int w = window.getWidth(), h = window.getHeight();
+						setMaximized(false);
+						window.setSize(w, h);
+						window.setLocation(window.getX(), 0);
+					}
+					int newSize = -e.getX() + window.getWidth() + prevPos[0];
+					if (newSize < 230) return;
+					window.setLocation(e.getXOnScreen() - prevPos[0], window.getY());
+					window.setSize(newSize, window.getHeight());
+				}
+			}
+		});
+		
+		east.addMouseListener(new MouseListener() {
+			public void mouseClicked(MouseEvent e) {}
+			public void mouseReleased(MouseEvent e) {}
+			public void mouseEntered(MouseEvent e) {}
+			public void mouseExited(MouseEvent e) {}
+			public void mousePressed(MouseEvent e) {
+				prevPos[0] = e.getX();
+			}
+		});
+		east.addMouseMotionListener(new MouseMotionListener() {
+			public void mouseMoved(MouseEvent e) {}
+			public void mouseDragged(MouseEvent e) {
+				if (resize) {
+					if (max) {
+						int w = window.getWidth(), h = window.getHeight();
+						setMaximized(false);
+						window.setSize(w, h);
+						window.setLocation(0, 0);
+					}
+					int newSize = e.getX() + window.getWidth() - prevPos[0];
+					if (newSize < 230) newSize = 230;
+					window.setSize(newSize, window.getHeight());
+				}
+			}
+		});
+		
+		south.addMouseListener(new MouseListener() {
+			public void mouseClicked(MouseEvent e) {}
+			public void mouseReleased(MouseEvent e) {}
+			public void mouseEntered(MouseEvent e) {}
+			public void mouseExited(MouseEvent e) {}
+			public void mousePressed(MouseEvent e) {
+				prevPos[1] = e.getY();
+			}
+		});
+		south.addMouseMotionListener(new MouseMotionListener() {
+			public void mouseMoved(MouseEvent e) {}
+			public void mouseDragged(MouseEvent e) {
+				if (resize) {
+					if (max) {
+						int w = window.getWidth(), h = window.getHeight();
+						setMaximized(false);
+						window.setSize(w, h);
+						window.setLocation(0, 0);
+					}
+					int newSize = e.getY() + window.getHeight() - prevPos[1];
+					if (newSize < 50) newSize = 50;
+					window.setSize(window.getWidth(), newSize);
+				}
+			}
+		});
+		
+		sw.addMouseListener(new MouseListener() {
+			public void mouseClicked(MouseEvent e) {}
+			public void mouseReleased(MouseEvent e) {}
+			public void mouseEntered(MouseEvent e) {}
+			public void mouseExited(MouseEvent e) {}
+			public void mousePressed(MouseEvent e) {
+				south.getMouseListeners()[0].mousePressed(e);
+				west.getMouseListeners()[0].mousePressed(e);
+			}
+		});
+		sw.addMouseMotionListener(new MouseMotionListener() {
+			public void mouseMoved(MouseEvent e) {}
+			public void mouseDragged(MouseEvent e) {
+				south.getMouseMotionListeners()[0].mouseDragged(e);
+				west.getMouseMotionListeners()[0].mouseDragged(e);
+			}
+		});
+		
+		se.addMouseListener(new MouseListener() {
+			public void mouseClicked(MouseEvent e) {}
+			public void mouseReleased(MouseEvent e) {}
+			public void mouseEntered(MouseEvent e) {}
+			public void mouseExited(MouseEvent e) {}
+			public void mousePressed(MouseEvent e) {
+				south.getMouseListeners()[0].mousePressed(e);
+				east.getMouseListeners()[0].mousePressed(e);
+			}
+		});
+		se.addMouseMotionListener(new MouseMotionListener() {
+			public void mouseMoved(MouseEvent e) {}
+			public void mouseDragged(MouseEvent e) {
+				south.getMouseMotionListeners()[0].mouseDragged(e);
+				east.getMouseMotionListeners()[0].mouseDragged(e);
+			}
+		});
+	
+	}
+	
+	public void setResizable(boolean resizable) {
+		resize = resizable;
+		if (!resize && max) {
+			int w = window.getWidth(), h = window.getHeight();
+			setMaximized(false);
+			window.setSize(w, h);
+			window.setLocation(0, 0);
+		}
+		south.setCursor(new Cursor(resizable ? Cursor.S_RESIZE_CURSOR : Cursor.DEFAULT_CURSOR));
+		west.setCursor(new Cursor(resizable ? Cursor.W_RESIZE_CURSOR : Cursor.DEFAULT_CURSOR));
+		east.setCursor(new Cursor(resizable ? Cursor.E_RESIZE_CURSOR : Cursor.DEFAULT_CURSOR));
+		sw.setCursor(new Cursor(resizable ? Cursor.SW_RESIZE_CURSOR : Cursor.DEFAULT_CURSOR));
+		se.setCursor(new Cursor(resizable ? Cursor.SE_RESIZE_CURSOR : Cursor.DEFAULT_CURSOR));
+		maxButton.setVisible(resizable);
+	
+	}
+	
+	public void setMaximized(boolean max) {
+		this.max = max;
+		if (max) {
+			GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+			Rectangle bounds = ge.getMaximumWindowBounds();
+			window.setMaximizedBounds(bounds);
+			window.setExtendedState(JFrame.MAXIMIZED_BOTH);
+		} else {
+			window.setExtendedState(JFrame.NORMAL);
+		}
+	}
+	
+	public void setVirtualRendering(final boolean virtual) { //Paints only visible rows using cached monospace glyphs, any thread
+		invoke(new Runnable() {
+			public void run() {
+				virtualRendering = virtual;
+				textField.updateUI();
+			}
+		});
+	}
+	public boolean isVirtualRendering() { return virtualRendering; }
+	
+	public int getPaintsPerSecond() { return paints.getRate(); }
+	
+	private void repaintWindow(JComponent c, long tm, int x, int y, int width, int height) { //Forward only the dirty region to the translucent window
+		if (window == null || !c.isShowing())
+			return;
+		Rectangle dirty = new Rectangle(x, y, width, height).intersection(c.getVisibleRect());
+		if (dirty.isEmpty())
+			return;
+		dirty = SwingUtilities.convertRectangle(c, dirty, window);
+		window.repaint(tm, dirty.x, dirty.y, dirty.width, dirty.height);
+	}
+	
+	private int getLastLine() {
+		return inputLine.start();
+	}
+	
+	void initCommands() { //Commands that only make sense with a window
+		console.addCommands(this, MethodHandles.lookup());
+	}
+	
+	private enum ColorPart { BG, FG, BORDER, DEFAULT }
+	
+	@ConsoleCommand(help = "Change the console colors", ui = true)
+	private void color(JConsole console, @ConsoleCommand.Arg(value = "part", help = "bg | fg | border | default") ColorPart part,
+			@ConsoleCommand.Arg(value = "color", help = "color (hexadecimal)", optional = true) String hex) {
+		Color col = null;
+		if (part != ColorPart.DEFAULT) {
+			if (hex == null) {
+				console.print("\n" + Ansi.style("Usage: color " + part.name().toLowerCase() + " <color>", Ansi.RED));
+				return;
+			}
+			try {
+				col = Color.decode(hex.startsWith("#") ? hex : "#" + hex);
+			} catch (NumberFormatException e) {
+				console.print("\n" + Ansi.style("\"" + hex + "\" is not a hexadecimal color", Ansi.RED));
+				return;
+			}
+		}
+		if (part == ColorPart.BG) {
+			textField.setBackground(new Color(col.getRed(), col.getGreen(), col.getBlue(), alpha));
+		} else if (part == ColorPart.FG) {
+			textField.setForeground(col);
+			textField.setCaretColor(col);
+		} else if (part == ColorPart.BORDER) {
+			menu.setBackground(col);
+			menu.setBorder(BorderFactory.createLineBorder(col, 4));
+			south.setBackground(col);
+			west.setBackground(col);
+			east.setBackground(col);
+			sw.setBackground(col);
+			se.setBackground(col);
+		} else {
+			menu.setBackground(Color.LIGHT_GRAY);
+			menu.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY, 4));
+			south.setBackground(Color.LIGHT_GRAY);
+			west.setBackground(Color.LIGHT_GRAY);
+			east.setBackground(Color.LIGHT_GRAY);
+			sw.setBackground(Color.LIGHT_GRAY);
+			se.setBackground(Color.LIGHT_GRAY);
+			textField.setForeground(Color.WHITE);
+			textField.setCaretColor(Color.WHITE);
+			textField.setBackground(new Color(0, 0, 0, alpha));
+		}
+	}
+	
+	@ConsoleCommand(name = "alpha", help = "Sets the alpha of the console", ui = true)
+	private void setAlpha(@ConsoleCommand.Arg(value = "alpha", help = "alpha value (0 - 255)", min = 0, max = 255) int alpha) {
+		if (alpha >= 255)
+			alpha = 254;
+		this.alpha = alpha;
+		Color winCol = window.getBackground();
+		window.setBackground(new Color(winCol.getRed(), winCol.getGreen(), winCol.getBlue(), alpha));
+		Color consCol = textField.getBackground();
+		textField.setBackground(new Color(consCol.getRed(), consCol.getGreen(), consCol.getBlue(), alpha));
+	}
+	
+	@ConsoleCommand(name = "find", help = "Highlights text in the scrollback, F3 / Shift+F3 step through the matches", ui = true)
+	private void findCommand(@ConsoleCommand.Arg(value = "text", help = "Text to find, none clears") String... words) {
+		String query = "";
+		for (int i = 0; i < words.length; i++)
+			query += (i > 0 ? " " : "") + words[i];
+		find(query);
+	}
+	
+	public void newLine(final boolean parse) { //Standard for new line + command parsing
+		if (!SwingUtilities.isEventDispatchThread()) {
+			later(new Runnable() {
+				public void run() {
+					newLine(parse);
+				}
+			});
+			return;
+		}
+		prompting = false;
+		if (parse) {
+			String line = "";
+			try {
+				line = textField.getText(inputLine.start(), textField.getDocument().getLength() - inputLine.start());
+			} catch (BadLocationException e) {
+				e.printStackTrace();
+			}
+			CommandHandle handle = console.execute(line);
+			if (handle != null && !handle.isDone()) { //Prompt comes back once the command finishes
+				running = handle;
+				handle.onDone(new Runnable() {
+					public void run() {
+						later(new Runnable() {
+							public void run() {
+								running = null;
+								newLine(false);
+							}
+						});
+					}
+				});
+				return;
+			}
+		}
+		int length = textField.getDocument().getLength();
+		if (length == 0 || inputLine.start() == length && lastChar() == '\n') //Nothing printed yet, or the empty line a pager left
+			print(">");
+		else
+			print("\n>");
+		prompting = true;
+		textField.setCaretPosition(textField.getDocument().getLength());
+	}
+	private boolean searchKey(KeyEvent e) { //Reverse incremental search keys, true if the key was used
+		switch (e.getKeyCode()) {
+		case KeyEvent.VK_R:
+			if (!e.isControlDown())
+				return false;
+			e.consume();
+			int older = console.getHistory().search(searchQuery, searchMatch < 0 ? Integer.MAX_VALUE : searchMatch);
+			if (older >= 0)
+				searchMatch = older;
+			showSearch();
+			return true;
+		case KeyEvent.VK_BACK_SPACE:
+			e.consume();
+			if (!searchQuery.isEmpty())
+				searchQuery = searchQuery.substring(0, searchQuery.length() - 1);
+			searchMatch = searchQuery.isEmpty() ? -1 : console.getHistory().search(searchQuery);
+			showSearch();
+			return true;
+		case KeyEvent.VK_ESCAPE:
+			e.consume();
+			endSearch();
+			return true;
+		case KeyEvent.VK_SHIFT:
+		case KeyEvent.VK_CONTROL:
+		case KeyEvent.VK_ALT:
+			return false;
+		default: //Anything else accepts the match and is handled as usual
+			if (e.getKeyChar() != KeyEvent.CHAR_UNDEFINED && e.getKeyCode() != KeyEvent.VK_ENTER)
+				return false;
+			endSearch();
+			return false;
+		}
+	}
+	private boolean findKey(KeyEvent e) { //Find mode keys, true if the key was used
+		switch (e.getKeyCode()) {
+		case KeyEvent.VK_ENTER:
+		case KeyEvent.VK_UP:
+			e.consume();
+			finder.next(false);
+			return true;
+		case KeyEvent.VK_DOWN:
+			e.consume();
+			finder.next(true);
+			return true;
+		case KeyEvent.VK_F3:
+			e.consume();
+			finder.next(!e.isShiftDown());
+			return true;
+		case KeyEvent.VK_F:
+			if (e.isControlDown()) { //Already finding
+				e.consume();
+				return true;
+			}
+			return false;
+		case KeyEvent.VK_BACK_SPACE:
+			e.consume();
+			if (!findQuery.isEmpty())
+				findQuery = findQuery.substring(0, findQuery.length() - 1);
+			find(findQuery);
+			setInput("(find)`" + findQuery + "': ");
+			return true;
+		case KeyEvent.VK_SHIFT:
+		case KeyEvent.VK_CONTROL:
+		case KeyEvent.VK_ALT:
+			return false;
+		default:
+			if (e.getKeyChar() != KeyEvent.CHAR_UNDEFINED && e.getKeyCode() != KeyEvent.VK_ESCAPE)
+				return false;
+			e.consume(); //Escape or a movement key leaves find mode
+			finding = false;
+			finder.clear();
+			setInput(findInput);
+			return true;
+		}
+	}
+	
+	boolean page(final Iterator<String> lines) { //Runs a pager on the command's thread, false on the EDT, which cannot wait for keys
+		if (SwingUtilities.isEventDispatchThread())
+			return false;
+		final BlockingQueue<Integer> requests = new LinkedBlockingQueue<Integer>();
+		later(new Runnable() {
+			public void run() {
+				paging = requests;
+				requests.add(pageRows());
+			}
+		});
+		try {
+			boolean first = true;
+			for (int n = requests.take(); n > 0; n = requests.take()) {
+				StringBuilder page = new StringBuilder(); //The only lines held, the scrollback keeps what was shown
+				for (int i = 0; i < n && lines.hasNext(); i++)
+					page.append(i > 0 || first ? "\n" : "").append(lines.next()); //Later pages start on the prompt's line
+				first = false;
+				boolean more = lines.hasNext();
+				console.print(more ? page.append('\n').toString() : page.toString());
+				if (!more)
+					break;
+				later(new Runnable() {
+					public void run() {
+						flush(); //The page is queued ahead of this
+						setInput(MORE);
+						pageShown = true;
+					}
+				});
+			}
+		} catch (InterruptedException e) { //Cancelled or timed out
+			Thread.currentThread().interrupt();
+		} finally {
+			later(new Runnable() {
+				public void run() {
+					if (pageShown)
+						setInput("");
+					pageShown = false;
+					paging = null;
+				}
+			});
+		}
+		return true;
+	}
+	private boolean pageKey(KeyEvent e) { //Pager keys, true if the key was used
+		if (e.isControlDown())
+			return false;
+		e.consume();
+		if (!pageShown)
+			return true;
+		switch (e.getKeyCode()) {
+		case KeyEvent.VK_SPACE:
+		case KeyEvent.VK_PAGE_DOWN:
+			more(pageRows());
+			break;
+		case KeyEvent.VK_ENTER:
+		case KeyEvent.VK_DOWN:
+			more(1);
+			break;
+		case KeyEvent.VK_Q:
+		case KeyEvent.VK_ESCAPE:
+			more(0);
+			break;
+		}
+		return true;
+	}
+	private void more(int lines) { //Hands the pager its next request, 0 stops it
+		pageShown = false;
+		setInput("");
+		paging.add(lines);
+	}
+	private int pageRows() { //Lines that fit in the view, less the prompt's
+		int height = Math.max(1, textField.getFontMetrics(textField.getFont()).getHeight());
+		return Math.max(1, scroll.getViewport().getExtentSize().height / height - 1);
+	}
+	private char lastChar() { return charAt(textField.getDocument().getLength() - 1); }
+	private char charAt(int offset) {
+		try {
+			return textField.getText(offset, 1).charAt(0);
+		} catch (BadLocationException e) {
+			return 0;
+		}
+	}
+	
+	public void find(String query) { //Searches the output above the input line in the background
+		finder.search(query, finding ? findEnd : inputLine.start());
+	}
+	public void findNext(boolean forward) {
+		finder.next(forward);
+	}
+	
+	private String getInput() {
+		try {
+			return textField.getText(inputLine.start(), textField.getDocument().getLength() - inputLine.start());
+		} catch (BadLocationException e) {
+			return "";
+		}
+	}
+	
+	private void showSearch() {
+		String match = searchMatch >= 0 ? console.getHistory().get(searchMatch) : null;
+		setInput("(reverse-i-search)`" + searchQuery + "': " + (match != null ? match : ""));
+	}
+	private void endSearch() {
+		searching = false;
+		String match = searchMatch >= 0 ? console.getHistory().get(searchMatch) : null;
+		setInput(match != null ? match : "");
+	}
+	private void setInput(String text) { //Replaces the input line
+		textField.replaceRange(text, inputLine.start(), textField.getDocument().getLength());
+		textField.setCaretPosition(textField.getDocument().getLength());
+	}
+	private void type(String text) { //Inserts at the end as if typed, unlike print a '>' in it stays part of the input, EDT only
+		flush();
+		textField.append(text);
+	}
+	
+	public boolean canBackSpace() { //Standard for back spacing
+		return textField.getCaretPosition() > inputLine.start();
+	}
+	public boolean complete() { //Tab completion of the command name, false if there is nothing to complete
+		String input;
+		try {
+			input = textField.getText(inputLine.start(), textField.getDocument().getLength() - inputLine.start());
+		} catch (BadLocationException e) {
+			return false;
+		}
+		if (input.isEmpty() || input.indexOf(' ') >= 0)
+			return false;
+		List<Command> matches = console.getCommands().complete(input, JConsole.PARSE_IGNORE_CAPS, 50);
+		if (matches.isEmpty())
+			return true;
+		String completed = matches.size() == 1 ? matches.get(0).getCommand() + " "
+											   : console.getCommands().commonPrefix(input, JConsole.PARSE_IGNORE_CAPS);
+		if (completed.length() > input.length()) {
+			textField.replaceRange(completed, inputLine.start(), textField.getDocument().getLength());
+			return true;
+		}
+		String list = "";
+		for (Command c : matches)
+			list += "\n" + c.getCommand();
+		if (matches.size() == 50)
+			list += "\n...";
+		print(list);
+		newLine(false);
+		type(input);
+		return true;
+	}
+	public void copyLastCommand() {
+		String lastCommand = console.getLastCommand();
+		if (!lastCommand.equalsIgnoreCase("")) {
+			type(lastCommand);
+			int length = textField.getDocument().getLength();
+			textField.setCaretPosition(length-lastCommand.length());
+			textField.moveCaretPosition(length);
+		}
+	}
+	public void print(String text) { //Safe from any thread, off the EDT text is queued and flushed in batches
+		if (SwingUtilities.isEventDispatchThread()) {
+			flush();
+			append(text);
+		} else {
+			output.offer(text);
+			if (!flushScheduled.getAndSet(true))
+				flushTimer.restart();
+		}
+	}
+	public void printAbove(final String text) { //Output that is no command's, like captured System.out, the prompt and typed input move below it
+		if (!SwingUtilities.isEventDispatchThread()) {
+			later(new Runnable() {
+				public void run() {
+					printAbove(text);
+				}
+			});
+			return;
+		}
+		flush();
+		int prompt = inputLine.start() - 1, length = textField.getDocument().getLength();
+		if (!prompting || prompt < 0 || charAt(prompt) != '>') {
+			append(text);
+			return;
+		}
+		String typed;
+		try {
+			typed = textField.getText(prompt + 1, length - prompt - 1);
+		} catch (BadLocationException e) {
+			append(text);
+			return;
+		}
+		int caret = length - textField.getCaretPosition();
+		textField.replaceRange("", prompt, length); //The '\n' before the prompt stays, so the scrollback line count holds
+		append(text.startsWith("\n") ? text.substring(1) : text); //Already at the start of a line
+		append(lastChar() == '\n' ? ">" : "\n>");
+		type(typed);
+		if (finding)
+			findEnd = inputLine.start();
+		length = textField.getDocument().getLength();
+		textField.setCaretPosition(Math.max(inputLine.start(), length - caret));
+	}
+	public void setFlushInterval(int millis) { flushTimer.setInitialDelay(millis); }
+	public int getFlushInterval() { return flushTimer.getInitialDelay(); }
+	
+	private void flush() { //Drains queued text into the document, EDT only
+		flushScheduled.set(false);
+		if (output.isEmpty())
+			return;
+		boolean more = output.drainTo(flushBuffer, 1 << 20);
+		append(flushBuffer.toString());
+		flushBuffer.setLength(0);
+		if (more && !flushScheduled.getAndSet(true))
+			flushTimer.restart();
+	}
+	
+	private void append(String text) { //Inserts only the new text at the end of the document, EDT only
+		append(textField, styles, inputLine, scrollback, text);
+	}
+	static void append(JTextArea area, StyleRuns styles, InputLine inputLine, Scrollback scrollback, String text) { //Static so PrintBenchmark times these very steps
+		int offset = area.getDocument().getLength();
+		text = styles.append(text, offset);
+		inputLine.setAppending(true);
+		try {
+			area.append(text);
+		} finally {
+			inputLine.setAppending(false);
+		}
+		evict(area, styles, scrollback.appended(offset, text));
+	}
+	
+	private static void later(final Runnable r) { //invokeLater that records how long r waited in the event queue
+		final long posted = Metrics.start();
+		if (posted == 0) {
+			SwingUtilities.invokeLater(r);
+			return;
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				Metrics.edtLatency.since(posted);
+				r.run();
+			}
+		});
+	}
+	
+	public void invoke(Runnable r) {
+		if (SwingUtilities.isEventDispatchThread())
+			r.run();
+		else
+			later(r);
+	}
+	
+	void showWatch(final Watch w, final String[] lines) { //Lines of a changed run, split off the EDT
+		later(new Runnable() {
+			public void run() {
+				if (w.isCancelled())
+					return;
+				if (watches == null) {
+					JTextArea area = new JTextArea() { //Fixed above the viewport, drawn in the scrollback's colors
+						private static final long serialVersionUID = 1L;
+						public Color getForeground() { return textField != null ? textField.getForeground() : super.getForeground(); }
+						public void repaint(long tm, int x, int y, int width, int height) {
+							repaintWindow(this, tm, x, y, width, height);
+						}
+					};
+					area.setOpaque(false);
+					area.setEditable(false);
+					area.setFocusable(false);
+					area.setFont(font);
+					area.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, Color.LIGHT_GRAY));
+					watches = new WatchRegion(area);
+					scroll.setColumnHeaderView(area);
+					scroll.getColumnHeader().setOpaque(false);
+				}
+				watches.show(w, lines);
+			}
+		});
+	}
+	
+	void removeWatch(final Watch w) {
+		later(new Runnable() {
+			public void run() {
+				if (watches == null)
+					return;
+				watches.remove(w);
+				if (watches.isEmpty()) {
+					watches = null;
+					scroll.setColumnHeaderView(null);
+				}
+			}
+		});
+	}
+	
+	public void close() {
+		console.unwatchAll();
+		if (paging != null)
+			paging.add(0);
+		window.dispose();
+	}
+	
+	public void clear() {
+		prompting = false;
+		textField.setText("");
+		scrollback.clear();
+		styles.clear();
+	}
+	
+	private void evict(int length) { //Drops the oldest lines picked by the scrollback
+		evict(textField, styles, length);
+	}
+	private static void evict(JTextArea area, StyleRuns styles, int length) {
+		if (length <= 0)
+			return;
+		try {
+			area.getDocument().remove(0, length);
+			styles.evict(length);
+		} catch (BadLocationException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	public int getMaxLines() { return scrollback.getMaxLines(); }
+	public int getMaxChars() { return scrollback.getMaxChars(); }
+	public void setMaxLines(final int maxLines) { //Any thread, applied on the EDT between appends
+		invoke(new Runnable() {
+			public void run() {
+				scrollback.setMaxLines(maxLines);
+				evict(scrollback.trim());
+			}
+		});
+	}
+	public void setMaxChars(final int maxChars) {
+		invoke(new Runnable() {
+			public void run() {
+				scrollback.setMaxChars(maxChars);
+				evict(scrollback.trim());
+			}
+		});
+	}
+
+}
@@ -0,0 +1,103 @@
+package zach.jconsole;
+
+import java.io.Writer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class ConsoleWriter extends Writer { //Hands written text to the console in whole lines, batched by size or age
+	//Complete lines wait at most LINGER millis, a partial line waits for its newline or a flush
+	
+	static final int BATCH = 1 << 16;
+	static final long LINGER = 10;
+	private static ScheduledExecutorService timer;
+	
+	private final JConsole console;
+	private final String style; //Put around every chunk, null for none
+	private final StringBuilder text = new StringBuilder(BATCH);
+	private int lines; //Length of text up to and including the last '\n'
+	private boolean scheduled;
+	private final Runnable deliver = new Runnable() {
+		public void run() {
+			synchronized (lock) {
+				scheduled = false;
+				deliver(lines);
+			}
+		}
+	};
+	
+	public ConsoleWriter(JConsole console) {
+		this(console, null);
+	}
+	public ConsoleWriter(JConsole console, String style) {
+		this.console = console;
+		this.style = style;
+	}
+	
+	private static synchronized ScheduledExecutorService timer() {
+		if (timer == null)
+			timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "JConsole writer");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		return timer;
+	}
+	
+	public void write(char[] chars, int offset, int length) {
+		synchronized (lock) {
+			text.append(chars, offset, length);
+			for (int i = offset + length - 1; i >= offset; i--)
+				if (chars[i] == '\n') {
+					lines = text.length() - (offset + length - 1 - i);
+					break;
+				}
+			written();
+		}
+	}
+	public void write(String s, int offset, int length) {
+		synchronized (lock) {
+			text.append(s, offset, offset + length);
+			int i = s.lastIndexOf('\n', offset + length - 1);
+			if (i >= offset)
+				lines = text.length() - (offset + length - 1 - i);
+			written();
+		}
+	}
+	public void write(int c) {
+		synchronized (lock) {
+			text.append((char) c);
+			if (c == '\n')
+				lines = text.length();
+			written();
+		}
+	}
+	
+	private void written() { //Holding lock
+		if (text.length() >= BATCH)
+			deliver(lines > 0 ? lines : text.length()); //A huge line is cut rather than buffered without end
+		else if (lines > 0 && !scheduled) {
+			scheduled = true;
+			timer().schedule(deliver, LINGER, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	private void deliver(int length) { //Holding lock, one String per batch
+		if (length <= 0)
+			return;
+		String chunk = text.substring(0, length);
+		text.delete(0, length);
+		lines = Math.max(0, lines - length);
+		console.printAbove(style == null ? chunk : style + chunk + Ansi.RESET); //Not a command's output, it may come while the prompt waits
+	}
+	
+	public void flush() { //Everything, including a partial line
+		synchronized (lock) {
+			deliver(text.length());
+		}
+	}
+	public void close() { flush(); }
+}
@@ -0,0 +1,72 @@
+package zach.jconsole;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+class GlyphCache { //Printable ASCII of a monospace font pre-rendered into one image strip
+	//Rendered at the screen's scale, so on a HiDPI screen the glyphs are copied pixel for pixel instead of stretched from 1x
+	
+	private static final char FIRST = 32, LAST = 126;
+	
+	private final Font font;
+	private final Color color;
+	private final GraphicsConfiguration gc;
+	private final BufferedImage atlas;
+	private final int width, height, ascent; //Of a glyph on screen, in user space
+	private final int cellWidth, cellHeight; //Of a glyph in the atlas, in device pixels
+	
+	private GlyphCache(Font font, Color color, FontMetrics fm, GraphicsConfiguration gc) {
+		this.font = font;
+		this.color = color;
+		this.gc = gc;
+		AffineTransform scale = gc.getDefaultTransform(); //Identity at 1x, the UI scale on a HiDPI screen
+		double scaleX = scale.getScaleX(), scaleY = scale.getScaleY();
+		width = fm.charWidth('m');
+		height = fm.getHeight();
+		ascent = fm.getAscent();
+		cellWidth = (int) Math.ceil(width * scaleX);
+		cellHeight = (int) Math.ceil(height * scaleY);
+		atlas = gc.createCompatibleImage(cellWidth * (LAST - FIRST + 1), cellHeight, Transparency.TRANSLUCENT);
+		Graphics2D g = atlas.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g.setFont(font);
+		g.setColor(color);
+		AffineTransform identity = g.getTransform();
+		for (char c = FIRST; c <= LAST; c++) {
+			g.translate((c - FIRST) * cellWidth, 0); //Every glyph starts on a whole pixel
+			g.scale(scaleX, scaleY);
+			g.drawString(String.valueOf(c), 0, ascent);
+			g.setTransform(identity);
+		}
+		g.dispose();
+	}
+	
+	static GlyphCache get(GlyphCache cache, Font font, Color color, FontMetrics fm, Graphics g) { //Reuses cache if it still fits, null for proportional fonts
+		if (!(g instanceof Graphics2D))
+			return null;
+		GraphicsConfiguration gc = ((Graphics2D) g).getDeviceConfiguration(); //Another one once the window moves to another screen
+		if (cache != null && cache.font.equals(font) && cache.color.equals(color) && cache.gc == gc)
+			return cache;
+		if (fm.charWidth('i') != fm.charWidth('m'))
+			return null;
+		return new GlyphCache(font, color, fm, gc);
+	}
+	
+	boolean canDraw(char c) { return c >= FIRST && c <= LAST; }
+	
+	int draw(Graphics g, char c, int x, int y) { //y is the baseline, returns the x after the glyph
+		if (c != ' ') {
+			int sx = (c - FIRST) * cellWidth, top = y - ascent;
+			g.drawImage(atlas, x, top, x + width, top + height, sx, 0, sx + cellWidth, cellHeight, null);
+		}
+		return x + width;
+	}
+}
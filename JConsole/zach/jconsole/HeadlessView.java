@@ -0,0 +1,26 @@
+package zach.jconsole;
+
+import java.io.PrintStream;
+
+public class HeadlessView implements ConsoleView { //Writes output to a stream, never touches AWT
+	
+	private final PrintStream out;
+	private volatile boolean closed;
+	
+	public HeadlessView(PrintStream out) {
+		this.out = out;
+	}
+	
+	public void print(String text) {
+		out.print(text);
+		out.flush();
+	}
+	public void clear() {}
+	public void close() {
+		closed = true;
+		out.flush();
+	}
+	public void invoke(Runnable r) { r.run(); }
+	
+	public boolean isClosed() { return closed; }
+}
@@ -0,0 +1,82 @@
+package zach.jconsole;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Histogram implements HistogramMXBean { //Log-linear buckets like HdrHistogram, about 3% error, lock free recording
+	//Values below 32 get a bucket each, above that every power of two is split in 32 buckets
+	
+	private static final int SUB_BITS = 5, SUB = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+	
+	private final String name;
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	public Histogram(String name) {
+		this.name = name;
+	}
+	
+	public void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts.incrementAndGet(bucket(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long m;
+		while (value > (m = max.get()) && !max.compareAndSet(m, value));
+	}
+	public void since(long start) { //Records the time since start from Metrics.start(), nothing when it was disabled
+		if (start != 0)
+			record(System.nanoTime() - start);
+	}
+	
+	private static int bucket(long value) {
+		if (value < SUB)
+			return (int) value;
+		int exp = 63 - Long.numberOfLeadingZeros(value);
+		return (exp - SUB_BITS + 1) * SUB + (int) ((value >>> (exp - SUB_BITS)) & (SUB - 1));
+	}
+	private static long highest(int bucket) { //Largest value that lands in bucket
+		if (bucket < SUB)
+			return bucket;
+		int exp = bucket / SUB + SUB_BITS - 1;
+		long low = (long) (SUB + bucket % SUB) << (exp - SUB_BITS);
+		return low + (1L << (exp - SUB_BITS)) - 1;
+	}
+	
+	public long getPercentile(double percent) {
+		long total = count.get();
+		if (total == 0)
+			return 0;
+		long rank = (long) Math.ceil(total * percent / 100), seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank)
+				return Math.min(highest(i), max.get());
+		}
+		return max.get();
+	}
+	
+	public String getName() { return name; }
+	public long getCount() { return count.get(); }
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+	public long getMax() { return max.get(); }
+	public long getP50() { return getPercentile(50); }
+	public long getP90() { return getPercentile(90); }
+	public long getP99() { return getPercentile(99); }
+	public long getP999() { return getPercentile(99.9); }
+	
+	public void reset() { //Not atomic with concurrent recording, a few samples may straddle it
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+}
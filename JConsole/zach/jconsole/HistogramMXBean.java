@@ -0,0 +1,12 @@
+package zach.jconsole;
+
+public interface HistogramMXBean { //Nanosecond latencies, exposed over JMX
+	public long getCount();
+	public double getMean();
+	public long getMax();
+	public long getP50();
+	public long getP90();
+	public long getP99();
+	public long getP999();
+	public void reset();
+}
@@ -0,0 +1,43 @@
+package zach.jconsole;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+
+class InputLine implements DocumentListener { //Keeps the offset where the input line begins current without rescanning
+	//The input begins just past the last printed '\n' or '>', only printed text moves it so a typed '>' is a redirect
+	
+	private int start;
+	private boolean appending;
+	private Segment inserted = new Segment();
+	
+	int start() { return start; }
+	void setAppending(boolean appending) { this.appending = appending; } //Set around inserting printed text
+	
+	public void insertUpdate(DocumentEvent e) {
+		int offset = e.getOffset(), length = e.getLength();
+		if (offset < start) {
+			start += length;
+			return;
+		}
+		if (!appending)
+			return;
+		try {
+			e.getDocument().getText(offset, length, inserted);
+		} catch (BadLocationException ex) {
+			return;
+		}
+		for (int i = length-1; i >= 0; i--)
+			if (inserted.array[inserted.offset + i] == '\n' || inserted.array[inserted.offset + i] == '>') {
+				start = offset + i + 1;
+				break;
+			}
+	}
+	public void removeUpdate(DocumentEvent e) {
+		int offset = e.getOffset(), length = e.getLength();
+		if (offset < start)
+			start = offset + length <= start ? start - length : offset;
+	}
+	public void changedUpdate(DocumentEvent e) {}
+}
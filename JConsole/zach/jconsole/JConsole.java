@@ -1,86 +1,98 @@
 package zach.jconsole;
 
-import java.awt.BorderLayout;
-import java.awt.Color;
-import java.awt.Cursor;
-import java.awt.Dimension;
-import java.awt.Font;
-import java.awt.Graphics;
-import java.awt.GraphicsEnvironment;
-import java.awt.Rectangle;
-import java.awt.event.KeyEvent;
-import java.awt.event.KeyListener;
-import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
-import java.awt.event.MouseMotionListener;
-import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
-import javax.swing.BorderFactory;
-import javax.swing.Box;
-import javax.swing.ImageIcon;
-import javax.swing.JFrame;
-import javax.swing.JLabel;
-import javax.swing.JMenuBar;
-import javax.swing.JPanel;
-import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
-import javax.swing.UIManager;
-
-public class JConsole {
+public class JConsole { //Command engine, the window is only one possible front end
 	
 	public static boolean PARSE_IGNORE_CAPS = false;
 	public static final double version = 1.d;
+	private static final int HISTORY = 10000; //Lines kept
 	
-	private Map<String, Command> commandsMap = new HashMap<String, Command>();
-	
-	private JFrame window;
-	private JTextArea textField;
-	private Font font = new Font("CONSOLAS", 0, 12);
-	private int alpha;
-	private JScrollPane scroll;
-	private String lastCommand = "";
-	
-	private JMenuBar menu;
-	private int[] prevPos = new int[2];
-	private JLabel xButton;
-	private JLabel maxButton;
-	private JLabel minButton;
+	private CommandRegistry commands;
+	private volatile String lastCommand = "";
+	private CommandExecutor executor;
+	private ThreadLocal<Tokenizer> tokenizer = new ThreadLocal<Tokenizer>() {
+		protected Tokenizer initialValue() {
+			return new Tokenizer();
+		}
+	};
 	
-	private boolean resize = true;
-	private boolean max = false;
-	private JPanel east;
-	private JPanel south;
-	private JPanel west;
-	private JPanel sw;
-	private JPanel se;
+	private volatile Transcript transcript;
+	private volatile CommandHistory history; //Sessions get theirs on first use, most never look at it
+	private ConsoleView view;
+	private ConsoleWindow window; //null when headless
+	private int scriptDepth; //Scripts running scripts, bounded so a script cannot run itself forever
+	private volatile int nestedFailed; //Failed commands of the scripts run by a script session
+	private final List<Watch> watches = new CopyOnWriteArrayList<Watch>();
+	private final AtomicInteger watchIds = new AtomicInteger();
+	Watch watching; //Set on the session a watch runs its command in
+	JConsole parent; //Set on script, pipeline and watch sessions, which end with their command, watches go to the console above them
+	private static PrintStream systemOut, systemErr; //Originals while captured
 	
 	public JConsole(String title, String initText, boolean useDefaultCommands, boolean exitOnClose) {
-		alpha = 0x99;
-		
-		commandsMap.put("?", new Command("?", new Action() {
-			public void perform(JConsole console, String[] args) {
-				if (args.length == 1) {
-					console.print("\n" + "Java Console version " + version
-						+ "\n" + "Type \"? <command>\" to learn its usage"
-						+ "\n" + "Commands currently active:");
-					String commandList = "";
-					for (Entry<String, Command> e : commandsMap.entrySet())
-						commandList += "\n" + e.getKey();
-					console.print(commandList);
-				} else {
-					Command c = commandsMap.get(args[1]);
-					if (c != null)
-						console.print("\n" + c.getHelpString());
-					else
-						console.print("\n" + "\"" + args[1] + "\" is not recognized as a command");
+		commands = new CommandRegistry();
+		executor = new CommandExecutor();
+		history = new CommandHistory(HISTORY);
+		window = ConsoleWindow.create(this, title, exitOnClose); //On the EDT, the prompt shows before the rest of the setup
+		view = window;
+		init(useDefaultCommands);
+		window.open(initText);
+	}
+	public JConsole(ConsoleView view, boolean useDefaultCommands) { //Headless or custom front end, no window is created
+		commands = new CommandRegistry();
+		executor = new CommandExecutor();
+		history = new CommandHistory(HISTORY);
+		this.view = view;
+		init(useDefaultCommands);
+	}
+	public JConsole(ConsoleView view, JConsole shared) { //Session on another front end, shares the commands and executor
+		commands = shared.commands;
+		executor = shared.executor;
+		this.view = view;
+	}
+	
+	private void init(boolean useDefaultCommands) {
+		commands.add(new Command("?", new PagedAction() {
+			public Iterator<String> lines(JConsole console, String[] args) {
+				if (args.length == 1) { //Names are read off the registry as the listing is shown
+					final Iterator<String> header = Arrays.asList("Java Console version " + version,
+							"Type \"? <command>\" to learn its usage", "Commands currently active:").iterator();
+					final Iterator<Command> names = commands.iterator();
+					return new Iterator<String>() {
+						public boolean hasNext() { return header.hasNext() || names.hasNext(); }
+						public String next() { return header.hasNext() ? header.next() : names.next().getCommand(); }
+						public void remove() { throw new UnsupportedOperationException(); }
+					};
 				}
-			};
+				Command c = commands.get(args[1], PARSE_IGNORE_CAPS);
+				if (c != null)
+					return Arrays.asList(c.getHelpString().split("\n")).iterator();
+				return Collections.singletonList("\"" + args[1] + "\" is not recognized as a command").iterator();
+			}
 		}) {
 			public String getHelpString() {
 				return "Provides help with command usage"
@@ -89,563 +101,557 @@ public class JConsole {
 		});
 		if (useDefaultCommands)
 			initCommands();
-		
-		window = new JFrame(title) {
-			private static final long serialVersionUID = 1L;
-			public void paint(Graphics g) {
-				g.clearRect(2, menu.getHeight() + 2, getWidth() - 4, getHeight()-menu.getHeight() - 4);
-				g.setColor(getBackground());
-				g.fillRect(2, menu.getHeight() + 2, getWidth() - 4, getHeight()-menu.getHeight() - 4);
-				super.paint(g);
-			}
-		};
-		textField = new JTextArea(initText) {
-			private static final long serialVersionUID = 1L;
-			public void paintComponent(Graphics g) {
-				g.clearRect(0, 0, textField.getWidth(), textField.getHeight());
-				g.setColor(getBackground());
-				g.fillRect(0, 0, textField.getWidth(), textField.getHeight());
-				super.paintComponent(g);
-				window.repaint();
-			}
-		};
-		textField.setOpaque(false);
-		menu = new JMenuBar();
-		xButton = new JLabel(" X ");
-		maxButton = new JLabel(" \u25A0 ");
-		minButton = new JLabel(" _ ");
-		newLine(false);
-		
-		//Window
-		window.setDefaultCloseOperation(exitOnClose ? JFrame.EXIT_ON_CLOSE
-												 : JFrame.DISPOSE_ON_CLOSE);
-		window.setResizable(false);
-		window.setUndecorated(true);
-		window.setJMenuBar(menu);
-		window.setBackground(new Color(0, 0, 0, alpha));
-		
-		final BufferedImage bi = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB); //Making Image Icon
-		Graphics g = bi.getGraphics();
-		g.setColor(Color.decode("#0FFFF0")); //Just a nice green
-		g.fillRoundRect(10, 10, 236, 236, 100, 100);
-		window.setIconImage(bi);
-		
-		JLabel image = new JLabel(new ImageIcon(bi)) {
-			private static final long serialVersionUID = 1L;
-			public void paintComponent(Graphics g) {
-				g.drawImage(bi, 0, 0, 23, 23, null);
-			}
-		};
-		image.setPreferredSize(new Dimension(25, 23));
-		menu.add(image);
-		menu.add(new JLabel(title));
-		menu.setBackground(Color.LIGHT_GRAY);
-		menu.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY, 4));
-		menu.addMouseListener(new MouseListener() {
-			public void mouseClicked(MouseEvent e) {}
-			public void mouseEntered(MouseEvent e) {}
-			public void mouseExited(MouseEvent e) {}
-			public void mousePressed(MouseEvent e) {
-				prevPos[0] = e.getX();
-				prevPos[1] = e.getY();
-			}
-			public void mouseReleased(MouseEvent e) {
-				if (e.getYOnScreen() <= 1 && resize) {
-					setMaximized(true);
-				}
-				if (window.getY() < 0)
-					window.setLocation(window.getX(), 0);
-				else if (window.getY() >= GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds().height - menu.getHeight())
-					window.setLocation(window.getX(),
-							GraphicsEnvironment.getLocalGraphicsEnvironment().getMaximumWindowBounds().height - menu.getHeight());
-			}
-		});
-		menu.addMouseMotionListener(new MouseMotionListener() {
-			public void mouseDragged(MouseEvent e) {
-				if (max) {
-					setMaximized(false);
-					window.setLocation(e.getXOnScreen() - window.getWidth()/2, 11);
-					prevPos[0] = window.getWidth() / 2;
-					prevPos[1] = 11;
-				} else
-				window.setLocation(window.getX() + e.getX() - prevPos[0], window.getY() + e.getY() - prevPos[1]);
-			}
-			public void mouseMoved(MouseEvent e) {}
-		});
-		menu.add(Box.createHorizontalGlue());		
-		menu.add(minButton);
-		minButton.setFont(font);
-		minButton.setBorder(BorderFactory.createLineBorder(new Color(0x334433)));
-		minButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
-		minButton.addMouseListener(new MouseListener() {
-			public void mouseClicked(MouseEvent e) {
-				window.setState(JFrame.ICONIFIED);
-			}
-			public void mouseEntered(MouseEvent e) {}
-			public void mouseExited(MouseEvent e) {}
-			public void mousePressed(MouseEvent e) {}
-			public void mouseReleased(MouseEvent e) {}
-		});
-		menu.add(maxButton);
-		maxButton.setFont(font);
-		maxButton.setBorder(BorderFactory.createLineBorder(new Color(0x334433)));
-		maxButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
-		maxButton.addMouseListener(new MouseListener() {
-			public void mouseClicked(MouseEvent e) {
-				setMaximized(!max);
-			}
-			public void mouseEntered(MouseEvent e) {}
-			public void mouseExited(MouseEvent e) {}
-			public void mousePressed(MouseEvent e) {}
-			public void mouseReleased(MouseEvent e) {}
-		});
-		menu.add(xButton);
-		xButton.setFont(font);
-		xButton.setBorder(BorderFactory.createLineBorder(new Color(0x334433)));
-		xButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
-		xButton.addMouseListener(new MouseListener() {
-			public void mouseClicked(MouseEvent e) {
-				window.dispose();
-			}
-			public void mouseEntered(MouseEvent e) {}
-			public void mouseExited(MouseEvent e) {}
-			public void mousePressed(MouseEvent e) {}
-			public void mouseReleased(MouseEvent e) {}
-		});
-		menu.add(new JLabel("  "));
-		
-		try {
-			UIManager.setLookAndFeel(
-					UIManager.getSystemLookAndFeelClassName()); //Native look and feel
-		} catch(Exception e) {
-			try {
-				UIManager.setLookAndFeel(
-						UIManager.getCrossPlatformLookAndFeelClassName());
-			} catch (Exception e1) {
-				e.printStackTrace();
-			}
-		}
-		
-		//Text Area
-		textField.setSize(400, 253);
-		textField.setFont(font);
-		textField.setBackground(new Color(0, 0, 0, alpha));
-		textField.setForeground(new Color(0xFF, 0xFF, 0xFF, 0xFF));
-		textField.setCaretColor(new Color(0xFF, 0xFF, 0xFF, 0xFF));
-		textField.setLineWrap(false);
-		//Text Area Event Listeners
-		textField.addKeyListener(new KeyListener() {
-			public void keyPressed(KeyEvent e) {
-				switch (e.getKeyCode()) {
-				case KeyEvent.VK_ENTER: //Override keys
-					e.consume();
-					newLine(true);
-					break;
-				case KeyEvent.VK_BACK_SPACE:
-					if (!canBackSpace())
-						e.consume();
-					break;
-				case KeyEvent.VK_LEFT:
-					if (!canBackSpace())
-						e.consume();
-					break;
-				case KeyEvent.VK_UP:
-					e.consume();
-					break;
-				case KeyEvent.VK_DOWN:
-					e.consume();
-					break;
-				case KeyEvent.VK_TAB:
-					e.consume();
-					copyLastCommand();
-					break;
-				}
-			}
-			public void keyReleased(KeyEvent e) {}
-			public void keyTyped(KeyEvent e) {
-				if (textField.getCaretPosition() < getLastLine())
-					e.consume();
-				switch (e.getKeyChar()) {
-				case '>' :
-					e.consume();
-					break;
-				}
-			}
-		});
-		textField.addMouseListener(new MouseListener() {
-			public void mouseClicked(MouseEvent e) {
-				e.consume();
-				if (textField.getCaretPosition() < getLastLine())
-					textField.setCaretPosition(textField.getText().length());
-			}
-			public void mouseEntered(MouseEvent e) {}
-			public void mouseExited(MouseEvent e) {}
-			public void mousePressed(MouseEvent e) {}
-			public void mouseReleased(MouseEvent e) {}
-		});
-		textField.addMouseMotionListener(new MouseMotionListener() {
-			public void mouseDragged(MouseEvent e) {
-				int lastLine = getLastLine();
-				if (textField.getCaretPosition() < lastLine)
-					textField.setCaretPosition(lastLine);
-			}
-			public void mouseMoved(MouseEvent e) {}
-		});
-		
-		
-		//Scroll Pane
-		scroll = new JScrollPane(textField);
-		scroll.setBorder(null);
-		
-		//Resize grabbing stuff
-		west = new JPanel();
-		west.setBackground(Color.LIGHT_GRAY);
-		west.setPreferredSize(new Dimension(5, 100));
-		west.setCursor(new Cursor(Cursor.W_RESIZE_CURSOR));
-		west.addMouseListener(new MouseListener() {
-			public void mouseClicked(MouseEvent e) {}
-			public void mouseReleased(MouseEvent e) {}
-			public void mouseEntered(MouseEvent e) {}
-			public void mouseExited(MouseEvent e) {}
-			public void mousePressed(MouseEvent e) {
-				prevPos[0] = e.getX();
-			}
-		});
-		west.addMouseMotionListener(new MouseMotionListener() {
-			public void mouseMoved(MouseEvent e) {}
-			public void mouseDragged(MouseEvent e) {
-				if (resize) {
-					if (max) {
-						int w = window.getWidth(), h = window.getHeight();
-						setMaximized(false);
-						window.setSize(w, h);
-						window.setLocation(window.getX(), 0);
-					}
-					int newSize = -e.getX() + window.getWidth() + prevPos[0];
-					if (newSize < 230) return;
-					window.setLocation(e.getXOnScreen() - prevPos[0], window.getY());
-					window.setSize(newSize, window.getHeight());
-				}
-			}
-		});
-		
-		east = new JPanel();
-		east.setBackground(Color.LIGHT_GRAY);
-		east.setPreferredSize(new Dimension(5, 100));
-		east.setCursor(new Cursor(Cursor.E_RESIZE_CURSOR));
-		east.addMouseListener(new MouseListener() {
-			public void mouseClicked(MouseEvent e) {}
-			public void mouseReleased(MouseEvent e) {}
-			public void mouseEntered(MouseEvent e) {}
-			public void mouseExited(MouseEvent e) {}
-			public void mousePressed(MouseEvent e) {
-				prevPos[0] = e.getX();
-			}
-		});
-		east.addMouseMotionListener(new MouseMotionListener() {
-			public void mouseMoved(MouseEvent e) {}
-			public void mouseDragged(MouseEvent e) {
-				if (resize) {
-					if (max) {
-						int w = window.getWidth(), h = window.getHeight();
-						setMaximized(false);
-						window.setSize(w, h);
-						window.setLocation(0, 0);
-					}
-					int newSize = e.getX() + window.getWidth() - prevPos[0];
-					if (newSize < 230) newSize = 230;
-					window.setSize(newSize, window.getHeight());
-				}
-			}
-		});
-		
-		south = new JPanel();
-		south.setBackground(Color.LIGHT_GRAY);
-		south.setPreferredSize(new Dimension(100, 5));
-		south.setCursor(new Cursor(Cursor.S_RESIZE_CURSOR));
-		south.addMouseListener(new MouseListener() {
-			public void mouseClicked(MouseEvent e) {}
-			public void mouseReleased(MouseEvent e) {}
-			public void mouseEntered(MouseEvent e) {}
-			public void mouseExited(MouseEvent e) {}
-			public void mousePressed(MouseEvent e) {
-				prevPos[1] = e.getY();
-			}
-		});
-		south.addMouseMotionListener(new MouseMotionListener() {
-			public void mouseMoved(MouseEvent e) {}
-			public void mouseDragged(MouseEvent e) {
-				if (resize) {
-					if (max) {
-						int w = window.getWidth(), h = window.getHeight();
-						setMaximized(false);
-						window.setSize(w, h);
-						window.setLocation(0, 0);
-					}
-					int newSize = e.getY() + window.getHeight() - prevPos[1];
-					if (newSize < 50) newSize = 50;
-					window.setSize(window.getWidth(), newSize);
-				}
-			}
-		});
-		
-		sw = new JPanel();
-		sw.setBackground(Color.LIGHT_GRAY);
-		sw.setPreferredSize(new Dimension(5, 5));
-		sw.setCursor(new Cursor(Cursor.SW_RESIZE_CURSOR));
-		sw.addMouseListener(new MouseListener() {
-			public void mouseClicked(MouseEvent e) {}
-			public void mouseReleased(MouseEvent e) {}
-			public void mouseEntered(MouseEvent e) {}
-			public void mouseExited(MouseEvent e) {}
-			public void mousePressed(MouseEvent e) {
-				south.getMouseListeners()[0].mousePressed(e);
-				west.getMouseListeners()[0].mousePressed(e);
-			}
-		});
-		sw.addMouseMotionListener(new MouseMotionListener() {
-			public void mouseMoved(MouseEvent e) {}
-			public void mouseDragged(MouseEvent e) {
-				south.getMouseMotionListeners()[0].mouseDragged(e);
-				west.getMouseMotionListeners()[0].mouseDragged(e);
-			}
-		});
-		
-		se = new JPanel();
-		se.setBackground(Color.LIGHT_GRAY);
-		se.setPreferredSize(new Dimension(5, 5));
-		se.setCursor(new Cursor(Cursor.SE_RESIZE_CURSOR));
-		se.addMouseListener(new MouseListener() {
-			public void mouseClicked(MouseEvent e) {}
-			public void mouseReleased(MouseEvent e) {}
-			public void mouseEntered(MouseEvent e) {}
-			public void mouseExited(MouseEvent e) {}
-			public void mousePressed(MouseEvent e) {
-				south.getMouseListeners()[0].mousePressed(e);
-				east.getMouseListeners()[0].mousePressed(e);
-			}
-		});
-		se.addMouseMotionListener(new MouseMotionListener() {
-			public void mouseMoved(MouseEvent e) {}
-			public void mouseDragged(MouseEvent e) {
-				south.getMouseMotionListeners()[0].mouseDragged(e);
-				east.getMouseMotionListeners()[0].mouseDragged(e);
-			}
-		});
-		
-		south.setLayout(new BorderLayout());
-		south.add(sw, BorderLayout.WEST);
-		south.add(se, BorderLayout.EAST);
-		
-		//Finalize window
-		window.add(scroll, BorderLayout.CENTER);
-		window.add(west, BorderLayout.WEST);
-		window.add(east, BorderLayout.EAST);
-		window.add(south, BorderLayout.SOUTH);
-		window.setSize(textField.getSize());
-		window.setLocationRelativeTo(null);
-		window.setVisible(true);
 	}
 	
 	public void setResizable(boolean resizable) {
-		resize = resizable;
-		if (!resize && max) {
-			int w = window.getWidth(), h = window.getHeight();
-			setMaximized(false);
-			window.setSize(w, h);
-			window.setLocation(0, 0);
-		}
-		south.setCursor(new Cursor(resizable ? Cursor.S_RESIZE_CURSOR : Cursor.DEFAULT_CURSOR));
-		west.setCursor(new Cursor(resizable ? Cursor.W_RESIZE_CURSOR : Cursor.DEFAULT_CURSOR));
-		east.setCursor(new Cursor(resizable ? Cursor.E_RESIZE_CURSOR : Cursor.DEFAULT_CURSOR));
-		sw.setCursor(new Cursor(resizable ? Cursor.SW_RESIZE_CURSOR : Cursor.DEFAULT_CURSOR));
-		se.setCursor(new Cursor(resizable ? Cursor.SE_RESIZE_CURSOR : Cursor.DEFAULT_CURSOR));
-		maxButton.setVisible(resizable);
-		
+		if (window != null)
+			window.setResizable(resizable);
 	}
-	
 	public void setMaximized(boolean max) {
-		this.max = max;
-		if (max) {
-			GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-			Rectangle bounds = ge.getMaximumWindowBounds();
-			window.setMaximizedBounds(bounds);
-			window.setExtendedState(JFrame.MAXIMIZED_BOTH);
-		} else {
-			window.setExtendedState(JFrame.NORMAL);
-		}
+		if (window != null)
+			window.setMaximized(max);
 	}
-	
-	private int getLastLine() {
-		int lastLine = textField.getText().length();
-		for (int i = lastLine-1; i >= 0; i--)
-			if (textField.getText().charAt(i) == '\n' || textField.getText().charAt(i) == '>') {
-				lastLine = i+1;
-				break;
-			}
-		return lastLine;
+	public void setVirtualRendering(boolean virtual) {
+		if (window != null)
+			window.setVirtualRendering(virtual);
 	}
+	public boolean isVirtualRendering() { return window != null && window.isVirtualRendering(); }
+	public int getPaintsPerSecond() { return window != null ? window.getPaintsPerSecond() : 0; }
 	
 	protected void initCommands() { //Default Commands
-		commandsMap.put("echo", new Command("echo", new Action() {
-			public void perform(JConsole console, String[] args) {
-				String print = "\n";
-				for (int i = 1; i < args.length; i++)
-					print += args[i] + " ";
-				console.print(print);
-			};
-		}) {
-			public String getHelpString() {
-				return "Echos string of text"
-					 + "\nargs = String to echo";
-			}
-		});
-		commandsMap.put("exit", new Command("exit", new Action() {
-			public void perform(JConsole console, String[] args) {
-				console.window.dispose();
-			};
-		}) {
-			public String getHelpString() {
-				return "Closes the console";
-			}
-		});
-		commandsMap.put("cls", new Command("cls", new Action() {
-			public void perform(JConsole console, String[] args) {
-				console.textField.setText("");
-			};
-		}) {
-			public String getHelpString() {
-				return "Clears the console";
-			}
-		});
-		commandsMap.put("color", new Command("color", new Action() {
-			public void perform(JConsole console, String[] args) {
-				try {
-				if (args[1].equalsIgnoreCase("bg")) {
-					if (!args[2].contains("#"))
-						args[2] = "#" + args[2];
-					Color col = Color.decode(args[2]);
-					col = new Color(col.getRed(), col.getGreen(), col.getBlue(), alpha);
-					console.textField.setBackground(col);
-				}
-				else if (args[1].equalsIgnoreCase("fg")) {
-					if (!args[2].contains("#"))
-						args[2] = "#" + args[2];
-					console.textField.setForeground(Color.decode(args[2]));
-					console.textField.setCaretColor(Color.decode(args[2]));
+		addCommands(JConsole.class, MethodHandles.lookup());
+		commands.add(new Command("grep", new StreamAction() {
+			public void perform(JConsole console, String[] args, Pipe in, Pipe out) {
+				boolean invert = false, ignoreCase = false;
+				int i = 1;
+				for (; i < args.length - 1 && args[i].startsWith("-"); i++) {
+					invert |= args[i].contains("v");
+					ignoreCase |= args[i].contains("i");
 				}
-				else if (args[1].equalsIgnoreCase("border")) {
-					if (!args[2].contains("#"))
-						args[2] = "#" + args[2];
-					Color col = Color.decode(args[2]);
-					console.menu.setBackground(col);
-					console.menu.setBorder(BorderFactory.createLineBorder(col, 4));
-					console.south.setBackground(col);
-					console.west.setBackground(col);
-					console.east.setBackground(col);
-					console.sw.setBackground(col);
-					console.se.setBackground(col);
+				if (i >= args.length) {
+					console.print("\nUsage: grep [-v] [-i] pattern");
+					return;
 				}
-				else if (args[1].equalsIgnoreCase("default")) {
-					console.menu.setBackground(Color.LIGHT_GRAY);
-					console.menu.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY, 4));
-					console.south.setBackground(Color.LIGHT_GRAY);
-					console.west.setBackground(Color.LIGHT_GRAY);
-					console.east.setBackground(Color.LIGHT_GRAY);
-					console.sw.setBackground(Color.LIGHT_GRAY);
-					console.se.setBackground(Color.LIGHT_GRAY);
-					console.textField.setForeground(Color.WHITE);
-					console.textField.setCaretColor(Color.WHITE);
-					console.textField.setBackground(new Color(0, 0, 0, alpha));
+				Pattern pattern;
+				try {
+					pattern = Pattern.compile(args[i], ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+				} catch (PatternSyntaxException e) {
+					console.print("\n" + Ansi.style("Bad pattern: " + e.getDescription(), Ansi.RED));
+					return;
 				}
-				} catch (ArrayIndexOutOfBoundsException e) {}
-				  catch (NumberFormatException e) {}
-			};
+				Matcher m = pattern.matcher("");
+				String line;
+				while ((line = in.take()) != null)
+					if (m.reset(line).find() != invert && !out.put(line))
+						return;
+			}
 		}) {
 			public String getHelpString() {
-				return "Change the console colors"
-					 + "\narg1 = bg | fg | border | default"
-					 + "\narg2 = color (hexadecimal)";
+				return "Passes on the input lines matching a pattern, for example \"? | grep ^c\""
+					 + "\narg1 = -v to keep the lines not matching, -i to ignore case (optional)"
+					 + "\narg2 = Regular expression";
 			}
 		});
-		commandsMap.put("alpha", new Command("alpha", new Action() {
-			public void perform(JConsole console, String[] args) {
+		commands.add(new Command("head", new StreamAction() {
+			public void perform(JConsole console, String[] args, Pipe in, Pipe out) {
+				int lines = 10;
 				try {
-					int alpha = Integer.parseInt(args[1]);
-					if (alpha >= 255)
-						alpha = 254;
-					console.alpha = alpha;
-					Color winCol = console.window.getBackground();
-					console.window.setBackground(new Color(winCol.getRed(), winCol.getGreen(), winCol.getBlue(), alpha));
-					Color consCol = console.textField.getBackground();
-					console.textField.setBackground(new Color(consCol.getRed(), consCol.getGreen(), consCol.getBlue(), alpha));
-				} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {}
+					if (args.length > 1)
+						lines = Integer.parseInt(args[1]);
+				} catch (NumberFormatException e) {}
+				String line;
+				for (int i = 0; i < lines && (line = in.take()) != null; i++)
+					if (!out.put(line))
+						break;
+				in.cancel(); //Stops the stages before it
 			}
 		}) {
 			public String getHelpString() {
-				return "Sets the alpha of the console"
-					 + "\narg1 = alpha value (0 - 255)";
+				return "Passes on the first input lines and stops the rest of the pipeline"
+					 + "\narg1 = lines (default 10)";
 			}
 		});
+		if (window != null)
+			window.initCommands();
 	}
 	
-	public void newLine(boolean parse) { //Standard for new line + command parsing
-		if (parse) {
-			String[] lines = textField.getText().split("\n");
-			String line = lines[lines.length-1];
-			parseCommand(line.substring(1));
+	@ConsoleCommand(help = "Echos string of text")
+	private static void echo(JConsole console, @ConsoleCommand.Arg(value = "text", help = "String to echo") String... words) {
+		String print = "\n";
+		for (String word : words)
+			print += word + " ";
+		console.print(print);
+	}
+	
+	@ConsoleCommand(help = "Closes the console", ui = true)
+	private static void exit(JConsole console) {
+		console.view.close();
+	}
+	
+	@ConsoleCommand(help = "Clears the console", ui = true)
+	private static void cls(JConsole console) {
+		console.clear();
+	}
+	
+	private enum StatsAction { ON, OFF, RESET }
+	
+	@ConsoleCommand(help = "Shows parse, print, paint, event queue and per command latencies, also under JMX zach.jconsole")
+	private static void stats(JConsole console, @ConsoleCommand.Arg(value = "action", help = "on | off | reset", optional = true) StatsAction action) {
+		if (action == StatsAction.ON)
+			Metrics.setEnabled(true);
+		else if (action == StatsAction.OFF)
+			Metrics.setEnabled(false);
+		else if (action == StatsAction.RESET)
+			Metrics.reset();
+		if (action != null)
+			return;
+		if (!Metrics.isEnabled()) {
+			console.print("\nMetrics are off, \"stats on\" starts recording");
+			return;
 		}
-		if (textField.getText().equalsIgnoreCase(""))
-			textField.setText(textField.getText() + ">");
-		else
-			textField.setText(textField.getText() + "\n>");
-		
-		textField.setCaretPosition(textField.getText().length());
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("%n%-20s %10s %10s %10s %10s %10s", "(microseconds)", "count", "mean", "p50", "p99", "max"));
+		for (Histogram h : Metrics.getHistograms())
+			if (h.getCount() > 0)
+				s.append(String.format("%n%-20s %10d %10.1f %10.1f %10.1f %10.1f", h.getName(), h.getCount(),
+						h.getMean() / 1e3, h.getP50() / 1e3, h.getP99() / 1e3, h.getMax() / 1e3));
+		s.append(String.format("%nPrinted %,d chars/s", (long) Metrics.getPrintedCharsPerSecond()));
+		console.print(s.toString());
+	}
+	
+	@ConsoleCommand(help = "Runs every line of a file as a command, lines starting with # are skipped")
+	private static void run(JConsole console, @ConsoleCommand.Arg(value = "file", help = "File") String file) {
+		if (console.scriptDepth >= 8) {
+			console.print("\n" + Ansi.style("Scripts are nested too deep", Ansi.RED));
+			console.nestedFailed++;
+			return;
+		}
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+			int failed = console.runScript(in, file);
+			if (console.scriptDepth > 0) //Counted by the script running this one
+				console.nestedFailed += failed;
+		} catch (IOException e) {
+			console.print("\n" + Ansi.style("Cannot read " + file + ": " + e.getMessage(), Ansi.RED));
+			if (console.scriptDepth > 0)
+				console.nestedFailed++;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	@ConsoleCommand(help = "Shows earlier output from the saved transcript")
+	private static void transcript(JConsole console,
+			@ConsoleCommand.Arg(value = "lines", help = "lines to show", defaultValue = "20", min = 0) int lines,
+			@ConsoleCommand.Arg(value = "skip", help = "lines to skip back from the end", defaultValue = "0", min = 0) int skip) {
+		Transcript t = console.transcript;
+		if (t == null) {
+			console.print("\nNo transcript is being kept");
+			return;
+		}
+		console.view.print("\n" + t.tail(lines, skip)); //Not recorded again
+		IOException error = t.getError();
+		if (error != null)
+			console.view.print("\n" + Ansi.style("Transcript failed: " + error, Ansi.RED));
+	}
+	
+	@ConsoleCommand(help = "Re-runs a command at an interval, the window keeps its latest output above the scrollback")
+	private static void watch(JConsole console,
+			@ConsoleCommand.Arg(value = "command", help = "[-n seconds] command and its arguments, none lists the watches") String... args) {
+		if (args.length == 0) {
+			StringBuilder s = new StringBuilder();
+			for (Watch w : console.getWatches())
+				s.append('\n').append(w);
+			console.print(s.length() > 0 ? s.toString() : "\nNothing is being watched");
+			return;
+		}
+		long millis = 2000;
+		int from = 0;
+		if (args[0].equals("-n")) {
+			double seconds = Double.NaN;
+			try {
+				seconds = args.length > 2 ? Double.parseDouble(args[1]) : Double.NaN;
+			} catch (NumberFormatException e) {}
+			if (!(seconds >= 0.01)) {
+				console.print("\n" + Ansi.style("Usage: watch [-n seconds] <command> [args...], at least 0.01 seconds", Ansi.RED));
+				return;
+			}
+			millis = Math.round(seconds * 1000);
+			from = 2;
+		}
+		Watch w = console.watch(millis, Arrays.copyOfRange(args, from, args.length));
+		if (w != null)
+			console.print("\nWatching " + w + ", \"unwatch " + w.getId() + "\" stops it");
+	}
+	
+	@ConsoleCommand(help = "Stops watches")
+	private static void unwatch(JConsole console,
+			@ConsoleCommand.Arg(value = "id", help = "watch number, all when left out", optional = true) Integer id) {
+		if (id == null) {
+			console.unwatchAll();
+			return;
+		}
+		for (Watch w : console.getWatches())
+			if (w.getId() == id) {
+				console.unwatch(w);
+				return;
+			}
+		console.print("\n" + Ansi.style("No watch #" + id, Ansi.RED));
+	}
+	
+	public void newLine(boolean parse) { //Standard for new line + command parsing
+		if (window != null)
+			window.newLine(parse);
 	}
 	public boolean canBackSpace() { //Standard for back spacing
-		if (textField.getText().charAt(textField.getCaretPosition()-1) == '>')
-			return false;
-		return true;
+		return window != null && window.canBackSpace();
+	}
+	public boolean complete() {
+		return window != null && window.complete();
+	}
+	public void find(final String query) { //Highlights query in the scrollback, searched in the background
+		if (window != null)
+			window.invoke(new Runnable() {
+				public void run() {
+					window.find(query);
+				}
+			});
+	}
+	public void findNext(final boolean forward) { //Selects the next newer or older match
+		if (window != null)
+			window.invoke(new Runnable() {
+				public void run() {
+					window.findNext(forward);
+				}
+			});
 	}
 	public void copyLastCommand() {
-		if (!lastCommand.equalsIgnoreCase("")) {
-			print(lastCommand);
-			textField.setCaretPosition(textField.getText().length()-lastCommand.length());
-			textField.moveCaretPosition(textField.getText().length());
-		}
+		if (window != null)
+			window.copyLastCommand();
 	}
 	public void parseCommand(String line) { //Command parsing
-		line = line.trim();
-		String[] args = line.split(" ");
-		if (!line.equalsIgnoreCase("")) {
-			List<String> list = new LinkedList<String>(Arrays.asList(args));
-			for (int i = list.size()-1; i >= 0; i--) {
-				list.set(i, list.get(i).trim());
-				if (list.get(i).equalsIgnoreCase(""))
-					list.remove(i);
+		execute(line);
+	}
+	public CommandHandle execute(String line) { //Starts the command on the executor, null if nothing was run
+		Tokenizer tokens = tokenizer.get();
+		long start = Metrics.start();
+		int count = tokens.parse(line);
+		Metrics.parse.since(start);
+		if (count == 0)
+			return null;
+		lastCommand = line.trim();
+		CommandHistory h = history;
+		if (h != null)
+			h.add(lastCommand);
+		Transcript t = transcript;
+		if (t != null)
+			t.append("\n>" + lastCommand);
+		if (tokens.operators() > 0)
+			return pipeline(tokens);
+		Command c = commands.get(tokens.token(0), PARSE_IGNORE_CAPS);
+		if (c != null)
+			return executor.submit(c, this, tokens.toArray());
+		print("\n" + Ansi.style("\"" + tokens.get(0) + "\" is not recognized as a command", Ansi.RED));
+		return null;
+	}
+	
+	private CommandHandle pipeline(Tokenizer tokens) { //cmd1 args | cmd2 args > file, or >> to append
+		List<Command> stages = new ArrayList<Command>();
+		List<String[]> args = new ArrayList<String[]>();
+		String file = null;
+		boolean append = false;
+		for (int i = 0, start = 0; i <= tokens.count(); i++) {
+			if (i < tokens.count() && !tokens.isOperator(i))
+				continue;
+			String error = null;
+			Command c = i > start ? commands.get(tokens.token(start), PARSE_IGNORE_CAPS) : null;
+			if (i == start)
+				error = "Missing command" + (i < tokens.count() ? " before \"" + tokens.get(i) + "\"" : " at the end");
+			else if (c == null)
+				error = "\"" + tokens.get(start) + "\" is not recognized as a command";
+			else if (c.isUICommand())
+				error = "\"" + c.getCommand() + "\" cannot be piped";
+			else if (i < tokens.count() && tokens.length(i) > 0 && tokens.buffer()[tokens.start(i)] == '>') {
+				if (i + 2 != tokens.count() || tokens.isOperator(i + 1))
+					error = "Expected one file name after \"" + tokens.get(i) + "\"";
+				file = tokens.get(tokens.count() - 1);
+				append = tokens.length(i) == 2;
+			}
+			if (error != null) {
+				print("\n" + Ansi.style(error, Ansi.RED));
+				return null;
+			}
+			String[] stage = new String[i - start];
+			for (int j = 0; j < stage.length; j++)
+				stage[j] = tokens.get(start + j);
+			stages.add(c);
+			args.add(stage);
+			if (file != null)
+				break;
+			start = i + 1;
+		}
+		if (stages.size() > executor.getMaxConcurrent()) {
+			print("\n" + Ansi.style("Pipelines can have at most " + executor.getMaxConcurrent() + " commands", Ansi.RED));
+			return null;
+		}
+		Pipe out = Pipe.printer(this);
+		if (file != null)
+			try {
+				out = Pipe.writer(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8)), this);
+			} catch (IOException e) {
+				print("\n" + Ansi.style("Cannot write " + file + ": " + e.getMessage(), Ansi.RED));
+				return null;
+			}
+		return executor.submit(stages.toArray(new Command[0]), args.toArray(new String[0][]), this, out);
+	}
+	
+	public String getLastCommand() { return lastCommand; }
+	public CommandRegistry getCommands() { return commands; }
+	public ConsoleView getView() { return view; }
+	public CommandHistory getHistory() {
+		CommandHistory h = history;
+		if (h == null)
+			synchronized (this) {
+				if (history == null)
+					history = new CommandHistory(HISTORY);
+				h = history;
+			}
+		return h;
+	}
+	public void setHistory(CommandHistory history) { this.history = history; } //For example one persisted to a file
+	public Transcript getTranscript() { return transcript; }
+	public void setTranscript(Transcript transcript) { this.transcript = transcript; } //Records every print and command, null stops
+	public CommandExecutor getExecutor() { return executor; }
+	public void setExecutor(CommandExecutor executor) { this.executor = executor; }
+	
+	public void addCommand(Command c) { //Safe from any thread, also while commands are running
+		commands.add(c);
+	}
+	public Command removeCommand(String command) {
+		return commands.remove(command);
+	}
+	public Command replaceCommand(Command c) { //Swaps the command with the same name, null if there was none
+		return commands.replace(c);
+	}
+	public void addCommands(Object target) { //Registers the public @ConsoleCommand methods of target, only static ones for a Class
+		addCommands(target, MethodHandles.publicLookup());
+	}
+	public void addCommands(Object target, MethodHandles.Lookup lookup) { //MethodHandles.lookup() in target's class reaches private methods too
+		for (Command c : CommandBinder.bind(target, lookup))
+			commands.add(c);
+	}
+	public void addCommandListener(CommandListener l) { commands.addListener(l); }
+	public void removeCommandListener(CommandListener l) { commands.removeListener(l); }
+	
+	public Watch watch(long intervalMillis, String... args) { //Runs args[0] every interval until unwatched, null if it cannot be watched
+		Command c = args.length > 0 ? commands.get(args[0], PARSE_IGNORE_CAPS) : null;
+		JConsole owner = this;
+		while (owner.parent != null && owner.watching == null)
+			owner = owner.parent;
+		String error = null;
+		if (c == null)
+			error = "\"" + (args.length > 0 ? args[0] : "") + "\" is not recognized as a command";
+		else if (c.isUICommand())
+			error = "\"" + c.getCommand() + "\" cannot be watched";
+		else if (owner.watching != null)
+			error = "A watched command cannot start watches";
+		else if (intervalMillis <= 0)
+			error = "The interval must be positive";
+		if (error != null) {
+			print("\n" + Ansi.style(error, Ansi.RED));
+			return null;
+		}
+		Watch w = new Watch(owner.watchIds.incrementAndGet(), owner, args.clone(), intervalMillis);
+		owner.watches.add(w);
+		w.start();
+		return w;
+	}
+	public List<Watch> getWatches() { return parent != null ? parent.getWatches() : Collections.unmodifiableList(watches); }
+	public void unwatch(Watch w) {
+		if (parent != null) {
+			parent.unwatch(w);
+			return;
+		}
+		if (!watches.remove(w))
+			return;
+		w.stop();
+		if (window != null && view == window)
+			window.removeWatch(w);
+	}
+	public void unwatchAll() {
+		for (Watch w : getWatches())
+			unwatch(w);
+	}
+	void showWatch(Watch w, String text) { //Output of a run that differs from the one before, from any thread
+		if (window != null && view == window)
+			window.showWatch(w, w.lines(text));
+		else
+			print("\n" + w + text);
+	}
+	
+	public void print(String text) { //Safe from any thread
+		long start = Metrics.start();
+		Transcript t = transcript;
+		if (t != null)
+			t.append(text);
+		view.print(text);
+		Metrics.printed(start, text.length());
+	}
+	void printAbove(String text) { //Output that is no command's, the window keeps it above the prompt and the typed input
+		long start = Metrics.start();
+		Transcript t = transcript;
+		if (t != null)
+			t.append(text);
+		if (window != null && view == window)
+			window.printAbove(text);
+		else
+			view.print(text);
+		Metrics.printed(start, text.length());
+	}
+	public void page(Iterator<String> lines) { //Shows lines as they are pulled, the window waits for a key after every screenful
+		//Only the current batch is held, so output of any size takes constant memory; a Stream can pass its iterator()
+		if (window != null && view == window && window.page(lines))
+			return;
+		StringBuilder batch = new StringBuilder();
+		while (lines.hasNext() && !Thread.currentThread().isInterrupted()) { //Cancelled or timed out commands stop pulling
+			batch.append('\n').append(lines.next());
+			if (batch.length() >= 1 << 16) {
+				print(batch.toString());
+				batch.setLength(0);
+			}
+		}
+		if (batch.length() > 0)
+			print(batch.toString());
+	}
+	public void println(String text) { //Prints text on its own line
+		print("\n" + text);
+	}
+	public void printf(String format, Object... args) {
+		print(String.format(format, args));
+	}
+	public Writer getWriter() { //Lines written appear in the console, batched
+		return new ConsoleWriter(this);
+	}
+	public OutputStream getOutputStream(Charset charset) {
+		return new ConsoleOutputStream(new ConsoleWriter(this), charset);
+	}
+	public void captureSystemOutput() { //System.out and System.err print here until restored, err in red
+		//Not for a HeadlessView made on System.out after this, it would print into itself
+		synchronized (JConsole.class) {
+			if (systemOut == null) {
+				systemOut = System.out;
+				systemErr = System.err;
+			}
+			Charset charset = Charset.defaultCharset();
+			try {
+				System.setOut(new PrintStream(new ConsoleOutputStream(new ConsoleWriter(this), charset), false, charset.name()));
+				System.setErr(new PrintStream(new ConsoleOutputStream(new ConsoleWriter(this, Ansi.RED), charset), false, charset.name()));
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e); //The default charset is always supported
 			}
-			lastCommand = "";
-			for (String s : list)
-				lastCommand += s + " ";
-			lastCommand = lastCommand.trim();
-			Command c = commandsMap.get(list.get(0));
-			if (c != null)
-				c.perform(this, list.toArray(new String[0]));
-			else
-				print("\n\"" + list.get(0) + "\" is not recognized as a command");
 		}
 	}
+	public static void restoreSystemOutput() {
+		synchronized (JConsole.class) {
+			if (systemOut == null)
+				return;
+			PrintStream out = System.out, err = System.err;
+			System.setOut(systemOut);
+			System.setErr(systemErr);
+			systemOut = systemErr = null;
+			out.flush();
+			err.flush();
+		}
+	}
+	public void clear() {
+		view.clear();
+	}
 	
-	public void addCommand(Command c) {
-		commandsMap.put(c.getCommand(), c);
+	public void setFlushInterval(int millis) {
+		if (window != null)
+			window.setFlushInterval(millis);
+	}
+	public int getFlushInterval() { return window != null ? window.getFlushInterval() : 0; }
+	public int getMaxLines() { return window != null ? window.getMaxLines() : 0; }
+	public int getMaxChars() { return window != null ? window.getMaxChars() : 0; }
+	public void setMaxLines(int maxLines) {
+		if (window != null)
+			window.setMaxLines(maxLines);
+	}
+	public void setMaxChars(int maxChars) {
+		if (window != null)
+			window.setMaxChars(maxChars);
 	}
 	
-	public void print(String text) {
-		textField.setText(textField.getText() + text);
+	public int runScript(BufferedReader in, String name) throws IOException, InterruptedException { //Returns the number of failed commands
+		//Each command waits for the one before, output reaches the view in batches instead of line by line
+		BatchView batch = new BatchView(this);
+		JConsole session = new JConsole(batch, this);
+		session.parent = this;
+		session.scriptDepth = scriptDepth + 1;
+		int run = 0, failed = 0;
+		long start = System.nanoTime();
+		String line;
+		try {
+			while (!batch.isClosed() && (line = in.readLine()) != null) {
+				String trimmed = line.trim();
+				if (trimmed.isEmpty() || trimmed.startsWith("#"))
+					continue;
+				run++;
+				CommandHandle handle = session.execute(line);
+				if (handle == null) //Not recognized
+					failed++;
+				else {
+					executor.await(handle);
+					if (handle.isFailed())
+						failed++;
+				}
+			}
+		} finally {
+			batch.flush();
+		}
+		failed += session.nestedFailed;
+		double millis = (System.nanoTime() - start) / 1e6;
+		print(String.format("%n%s: %d commands in %.1f ms (%.0f/s)%s", name, run, millis, run * 1e3 / Math.max(millis, 1e-3),
+				failed > 0 ? Ansi.style(", " + failed + " failed", Ansi.RED) : ""));
+		return failed;
+	}
+	
+	private static void runHeadless() throws IOException, InterruptedException { //Reads commands from stdin, no AWT is loaded
+		HeadlessView view = new HeadlessView(System.out);
+		JConsole console = new JConsole(view, true);
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+		String line;
+		view.print(">");
+		while ((line = in.readLine()) != null) {
+			CommandHandle handle = console.execute(line);
+			if (handle != null)
+				handle.await();
+			if (view.isClosed())
+				break;
+			view.print("\n>");
+		}
+		view.print("\n");
+		console.executor.shutdown();
 	}
 	
-	public static void main(String args[]) { //Just a test main, do not use this in application
+	public static void main(String args[]) throws Exception { //Just a test main, do not use this in application
 		JConsole.PARSE_IGNORE_CAPS = true;
+		if (args.length > 1 && args[0].equals("--headless")) { //Runs a script, or stdin for "-", and exits with 1 if a command failed
+			JConsole console = new JConsole(new HeadlessView(System.out), true);
+			BufferedReader in = new BufferedReader(args[1].equals("-") ? new InputStreamReader(System.in)
+					: new InputStreamReader(new FileInputStream(args[1]), StandardCharsets.UTF_8));
+			int failed = console.runScript(in, args[1].equals("-") ? "stdin" : args[1]);
+			console.print("\n");
+			System.exit(failed > 0 ? 1 : 0);
+		}
+		if (args.length > 0 && args[0].equals("--headless")) {
+			runHeadless();
+			return;
+		}
+		if (args.length > 1 && args[0].equals("--server")) { //Serves the default commands until killed
+			new ConsoleServer(new JConsole(new HeadlessView(System.out), true), new InetSocketAddress(Integer.parseInt(args[1]))).run();
+			return;
+		}
 		new JConsole("Java Console [DEFAULT]", "Default Java Console by Zachary Wells\nType '?' for help", true, true);
 	}
 }
@@ -0,0 +1,80 @@
+package zach.jconsole;
+
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Shape;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.View;
+import javax.swing.text.ViewFactory;
+
+class LineView extends StyledView { //Paints only the visible rows through glyph caches, sized by the widest line seen
+	
+	private Map<Color, GlyphCache> glyphs = new HashMap<Color, GlyphCache>(); //One per color in use, the palette bounds it
+	private int widest; //Longest line in chars, grows with inserts and is counted again when the oldest lines are evicted
+	
+	LineView(Element elem, StyleRuns styles) {
+		super(elem, styles);
+	}
+	
+	public float getPreferredSpan(int axis) {
+		if (axis != View.X_AXIS)
+			return super.getPreferredSpan(axis);
+		Container host = getContainer();
+		FontMetrics fm = host.getFontMetrics(host.getFont());
+		return widest * fm.charWidth('m') + 1;
+	}
+	
+	protected void updateDamage(DocumentEvent changes, Shape a, ViewFactory f) {
+		Element root = getElement();
+		if (root.getEndOffset() <= 1)
+			widest = 0;
+		if (changes.getType() == DocumentEvent.EventType.REMOVE && changes.getOffset() == 0) { //Eviction, the widest line may be gone
+			widest = 0;
+			for (int i = 0, n = root.getElementCount(); i < n; i++) {
+				Element e = root.getElement(i);
+				widest = Math.max(widest, e.getEndOffset() - e.getStartOffset());
+			}
+		} else if (changes.getType() == DocumentEvent.EventType.INSERT) {
+			int first = root.getElementIndex(changes.getOffset());
+			int last = root.getElementIndex(changes.getOffset() + changes.getLength());
+			for (int i = first; i <= last; i++) {
+				Element e = root.getElement(i);
+				widest = Math.max(widest, e.getEndOffset() - e.getStartOffset());
+			}
+		}
+		preferenceChanged(null, true, true);
+		Container host = getContainer();
+		if (host != null)
+			host.repaint();
+	}
+	
+	protected int drawRun(Graphics g, int x, int y, int p0, int p1, Color fg) throws BadLocationException {
+		JTextComponent host = (JTextComponent) getContainer();
+		GlyphCache cache = GlyphCache.get(glyphs.get(fg), host.getFont(), fg, host.getFontMetrics(host.getFont()), g);
+		if (cache == null)
+			return super.drawRun(g, x, y, p0, p1, fg);
+		glyphs.put(fg, cache);
+		getDocument().getText(p0, p1 - p0, line);
+		g.setColor(fg);
+		for (int i = 0; i < line.count; i++) {
+			char c = line.array[line.offset + i];
+			if (c == '\t')
+				x = (int) nextTabStop(x, p0 + i);
+			else if (cache.canDraw(c))
+				x = cache.draw(g, c, x, y);
+			else if (c != '\n') {
+				g.drawChars(line.array, line.offset + i, 1, x, y);
+				x += g.getFontMetrics().charWidth(c);
+			}
+		}
+		return x;
+	}
+}
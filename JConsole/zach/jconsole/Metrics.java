@@ -0,0 +1,109 @@
+package zach.jconsole;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class Metrics { //Process wide latency histograms, off by default so a disabled probe costs one volatile read
+	//Enabling registers everything under the "zach.jconsole" JMX domain, dispatch histograms appear per command name
+	
+	private static volatile boolean enabled;
+	private static volatile long since = System.nanoTime(); //Start of the print throughput window
+	
+	public static final Histogram parse = new Histogram("parse");
+	public static final Histogram print = new Histogram("print");
+	public static final Histogram edtLatency = new Histogram("edt latency");
+	public static final Histogram paint = new Histogram("paint");
+	private static final ConcurrentMap<String, Histogram> dispatch = new ConcurrentHashMap<String, Histogram>();
+	private static final AtomicLong printedChars = new AtomicLong();
+	private static boolean registered;
+	
+	private static final MetricsMXBean control = new MetricsMXBean() {
+		public boolean isEnabled() { return enabled; }
+		public void setEnabled(boolean on) { Metrics.setEnabled(on); }
+		public long getPrintedChars() { return printedChars.get(); }
+		public double getPrintedCharsPerSecond() { return Metrics.getPrintedCharsPerSecond(); }
+		public void reset() { Metrics.reset(); }
+	};
+	
+	private Metrics() {}
+	
+	public static boolean isEnabled() { return enabled; }
+	public static synchronized void setEnabled(boolean on) {
+		if (on && !registered) {
+			registered = true;
+			register("type=Metrics", control);
+			for (Histogram h : new Histogram[] {parse, print, edtLatency, paint})
+				register("type=Histogram,name=" + ObjectName.quote(h.getName()), h);
+			for (Histogram h : dispatch.values())
+				register("type=Dispatch,command=" + ObjectName.quote(h.getName()), h);
+		}
+		if (on && !enabled)
+			since = System.nanoTime();
+		enabled = on;
+	}
+	
+	public static long start() { return enabled ? System.nanoTime() : 0; } //Pass to Histogram.since
+	
+	public static Histogram dispatch(String command) { //Time spent in the command's action
+		Histogram h = dispatch.get(command);
+		if (h == null) {
+			Histogram created = new Histogram(command);
+			h = dispatch.putIfAbsent(command, created);
+			if (h == null) {
+				h = created;
+				synchronized (Metrics.class) {
+					if (registered)
+						register("type=Dispatch,command=" + ObjectName.quote(command), h);
+				}
+			}
+		}
+		return h;
+	}
+	
+	public static void printed(long start, int chars) {
+		if (start == 0)
+			return;
+		print.since(start);
+		printedChars.addAndGet(chars);
+	}
+	public static double getPrintedCharsPerSecond() {
+		long elapsed = System.nanoTime() - since;
+		return elapsed <= 0 ? 0 : printedChars.get() * 1e9 / elapsed;
+	}
+	
+	public static List<Histogram> getHistograms() { //Fixed ones first, then dispatch by command
+		List<Histogram> all = new ArrayList<Histogram>();
+		all.add(parse);
+		all.add(print);
+		all.add(edtLatency);
+		all.add(paint);
+		all.addAll(dispatch.values());
+		return all;
+	}
+	
+	public static void reset() {
+		for (Histogram h : getHistograms())
+			h.reset();
+		printedChars.set(0);
+		since = System.nanoTime();
+	}
+	
+	private static void register(String name, Object bean) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName id = new ObjectName("zach.jconsole:" + name);
+			if (!server.isRegistered(id))
+				server.registerMBean(bean, id);
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+}
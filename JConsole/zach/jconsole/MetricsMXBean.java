@@ -0,0 +1,9 @@
+package zach.jconsole;
+
+public interface MetricsMXBean { //Switches the instrumentation and shows the counters that are not histograms
+	public boolean isEnabled();
+	public void setEnabled(boolean enabled);
+	public long getPrintedChars();
+	public double getPrintedCharsPerSecond();
+	public void reset();
+}
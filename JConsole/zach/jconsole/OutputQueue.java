@@ -0,0 +1,40 @@
+package zach.jconsole;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OutputQueue { //Lock-free multi producer, single consumer queue of printed text
+
+	private static class Node {
+		private String text;
+		private volatile Node next;
+		private Node(String text) { this.text = text; }
+	}
+
+	private final AtomicReference<Node> tail;
+	private Node head; //Only touched by the consumer
+
+	public OutputQueue() {
+		head = new Node(null);
+		tail = new AtomicReference<Node>(head);
+	}
+
+	public void offer(String text) { //Safe from any thread, never blocks
+		Node node = new Node(text);
+		tail.getAndSet(node).next = node;
+	}
+
+	public boolean drainTo(StringBuilder out, int limit) { //Consumer only, returns true if text is left over
+		Node node = head.next;
+		while (node != null) {
+			out.append(node.text);
+			node.text = null;
+			head = node;
+			if (out.length() >= limit)
+				return head.next != null || tail.get() != head;
+			node = node.next;
+		}
+		return false;
+	}
+
+	public boolean isEmpty() { return head.next == null && tail.get() == head; }
+}
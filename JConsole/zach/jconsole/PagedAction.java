@@ -0,0 +1,7 @@
+package zach.jconsole;
+
+import java.util.Iterator;
+
+public interface PagedAction { //Action whose output is pulled line by line, the window shows it a screenful at a time
+	public Iterator<String> lines(JConsole console, String[] args); //Lazy, only what is shown gets computed
+}
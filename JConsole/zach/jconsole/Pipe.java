@@ -0,0 +1,112 @@
+package zach.jconsole;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public class Pipe { //Bounded line buffer between two pipeline stages, the writer waits while it is full
+	
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	private final String[] lines;
+	private int head;
+	private int count;
+	private boolean closed; //Writer is done
+	private boolean cancelled; //Reader is gone, nothing more is wanted
+	
+	public Pipe() {
+		this(DEFAULT_CAPACITY);
+	}
+	public Pipe(int capacity) {
+		lines = new String[capacity];
+	}
+	
+	public static Pipe empty() { //Input of the first stage
+		Pipe p = new Pipe(1);
+		p.close();
+		return p;
+	}
+	
+	static Pipe printer(final JConsole console) { //Prints every line as it comes, the window batches the repaints
+		return new Pipe(1) {
+			public boolean put(String line) {
+				console.print("\n" + line);
+				return !Thread.currentThread().isInterrupted();
+			}
+		};
+	}
+	
+	static Pipe writer(final Writer out, final JConsole console) { //Writes the lines to out and closes it at the end
+		return new Pipe(1) {
+			private boolean failed;
+			public synchronized boolean put(String line) {
+				if (failed)
+					return false;
+				try {
+					out.write(line);
+					out.write('\n');
+					return true;
+				} catch (IOException e) {
+					fail(e);
+					return false;
+				}
+			}
+			public synchronized void close() {
+				try {
+					out.close();
+				} catch (IOException e) {
+					fail(e);
+				}
+			}
+			private void fail(IOException e) {
+				if (!failed)
+					console.print("\n" + Ansi.style("Cannot write output: " + e.getMessage(), Ansi.RED));
+				failed = true;
+			}
+		};
+	}
+	
+	public synchronized boolean put(String line) { //Returns false once the reader is gone, the writer should stop then
+		try {
+			while (count == lines.length && !cancelled)
+				wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		if (cancelled || closed)
+			return false;
+		lines[(head + count) % lines.length] = line;
+		if (count++ == 0)
+			notifyAll();
+		return true;
+	}
+	
+	public synchronized String take() { //Next line, null at the end of the input
+		try {
+			while (count == 0 && !closed && !cancelled)
+				wait();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		if (count == 0)
+			return null;
+		String line = lines[head];
+		lines[head] = null;
+		head = (head + 1) % lines.length;
+		if (count-- == lines.length)
+			notifyAll();
+		return line;
+	}
+	
+	public synchronized void close() { //Writer side, the reader sees the end once the buffer is drained
+		closed = true;
+		notifyAll();
+	}
+	public synchronized void cancel() { //Reader side, drops what is buffered and stops the writer
+		cancelled = true;
+		count = 0;
+		notifyAll();
+	}
+	public synchronized boolean isCancelled() { return cancelled; }
+}
@@ -0,0 +1,37 @@
+package zach.jconsole;
+
+import java.util.concurrent.CancellationException;
+
+class PipeView implements ConsoleView { //Turns what a plain Action prints into lines for the next pipeline stage
+	//Printed text starts lines with '\n', so a leading '\n' does not make an empty first line
+	
+	private final Pipe out;
+	private final StringBuilder line = new StringBuilder();
+	private boolean started;
+	
+	PipeView(Pipe out) {
+		this.out = out;
+	}
+	
+	public synchronized void print(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c != '\n')
+				line.append(c);
+			else if (started || line.length() > 0) {
+				if (!out.put(line.toString()))
+					throw new CancellationException(); //Nobody reads any more, stops the action
+				line.setLength(0);
+			}
+			started = true;
+		}
+	}
+	public void clear() {}
+	public synchronized void close() { //End of the output
+		if (line.length() > 0)
+			out.put(line.toString());
+		line.setLength(0);
+		out.close();
+	}
+	public void invoke(Runnable r) { r.run(); }
+}
@@ -0,0 +1,29 @@
+package zach.jconsole;
+
+public class RateCounter { //Counts events per second, reports the last full second
+	
+	private long second;
+	private int current;
+	private int previous;
+	private long total;
+	
+	public synchronized void mark() {
+		long now = System.nanoTime() / 1000000000L;
+		if (now != second) {
+			previous = now == second + 1 ? current : 0;
+			current = 0;
+			second = now;
+		}
+		current++;
+		total++;
+	}
+	
+	public synchronized int getRate() {
+		long now = System.nanoTime() / 1000000000L;
+		if (now == second)
+			return previous;
+		return now == second + 1 ? current : 0;
+	}
+	
+	public synchronized long getTotal() { return total; }
+}
@@ -0,0 +1,79 @@
+package zach.jconsole;
+
+public class Scrollback { //Tracks line boundaries of the console text and decides what to evict
+
+	public static final int DEFAULT_MAX_LINES = 10000;
+	public static final int DEFAULT_MAX_CHARS = 1 << 24;
+
+	private int[] lines = new int[64]; //Ring of completed line lengths, including the '\n'
+	private int head;
+	private int count;
+	private int tailStart; //Offset where the unfinished last line starts
+	private int length;
+
+	private volatile int maxLines; //Read by getters on any thread
+	private volatile int maxChars;
+
+	public Scrollback() {
+		this(DEFAULT_MAX_LINES, DEFAULT_MAX_CHARS);
+	}
+	public Scrollback(int maxLines, int maxChars) {
+		setMaxLines(maxLines);
+		setMaxChars(maxChars);
+	}
+
+	public int appended(int offset, CharSequence text) { //Returns the number of leading chars to evict
+		if (offset < tailStart) //Text was removed by hand since the last append
+			tailStart = offset;
+		for (int i = 0; i < text.length(); i++)
+			if (text.charAt(i) == '\n') {
+				int end = offset + i + 1;
+				push(end - tailStart);
+				tailStart = end;
+			}
+		length = offset + text.length();
+		return trim();
+	}
+
+	public int trim() { //Evicts down to 7/8 of the caps so the removal cost is amortized over many lines
+		if (count <= maxLines && length <= maxChars)
+			return 0;
+		int lineMark = maxLines - (maxLines >> 3);
+		int charMark = maxChars - (maxChars >> 3);
+		int evicted = 0;
+		while (count > 0 && (count > lineMark || length - evicted > charMark)) {
+			evicted += lines[head];
+			head = (head + 1) % lines.length;
+			count--;
+		}
+		tailStart -= evicted;
+		length -= evicted;
+		return evicted;
+	}
+
+	public void clear() {
+		head = 0;
+		count = 0;
+		tailStart = 0;
+		length = 0;
+	}
+
+	private void push(int lineLength) {
+		if (count == lines.length) {
+			int[] grown = new int[lines.length * 2];
+			for (int i = 0; i < count; i++)
+				grown[i] = lines[(head + i) % lines.length];
+			lines = grown;
+			head = 0;
+		}
+		lines[(head + count) % lines.length] = lineLength;
+		count++;
+	}
+
+	public int getLineCount() { return count + 1; }
+	public int getLength() { return length; }
+	public int getMaxLines() { return maxLines; }
+	public int getMaxChars() { return maxChars; }
+	public void setMaxLines(int maxLines) { this.maxLines = maxLines > 0 ? maxLines : Integer.MAX_VALUE; }
+	public void setMaxChars(int maxChars) { this.maxChars = maxChars > 0 ? maxChars : Integer.MAX_VALUE; }
+}
@@ -0,0 +1,232 @@
+package zach.jconsole;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.JTextArea;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
+import javax.swing.text.Segment;
+
+class ScrollbackSearch { //Finds text in the scrollback on a background thread and highlights the visible matches
+	//Matches are kept as absolute offsets (document offset + chars evicted so far) so eviction does not shift them
+	
+	private static final int CHUNK = 1 << 20;
+	private static final int MAX_HIGHLIGHTS = 1000;
+	private static final Highlighter.HighlightPainter painter = new DefaultHighlighter.DefaultHighlightPainter(new Color(0xFF, 0xD0, 0x00, 0x80));
+	private static ExecutorService worker;
+	
+	private static class Matches { //Published prefix of an append-only array
+		private final long[] offsets;
+		private final int count;
+		private Matches(long[] offsets, int count) {
+			this.offsets = offsets;
+			this.count = count;
+		}
+	}
+	
+	private final JTextArea text;
+	private final AtomicInteger generation = new AtomicInteger();
+	private final AtomicBoolean refreshQueued = new AtomicBoolean();
+	private volatile long base; //Chars evicted from the front, changed under the document write lock
+	private volatile Matches matches = new Matches(new long[0], 0);
+	private volatile boolean done = true;
+	private String query = "";
+	private long current = -1;
+	private Object[] tags = new Object[0];
+	
+	ScrollbackSearch(JTextArea text) {
+		this.text = text;
+		text.getDocument().addDocumentListener(new DocumentListener() {
+			public void removeUpdate(DocumentEvent e) {
+				if (e.getOffset() == 0)
+					base += e.getLength();
+			}
+			public void insertUpdate(DocumentEvent e) {}
+			public void changedUpdate(DocumentEvent e) {}
+		});
+	}
+	
+	void watch(JViewport viewport) { //Re-highlights when scrolled
+		viewport.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent e) {
+				if (!query.isEmpty())
+					highlight();
+			}
+		});
+	}
+	
+	private static synchronized ExecutorService worker() {
+		if (worker == null)
+			worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "JConsole search");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		return worker;
+	}
+	
+	void search(final String query, int end) { //Restarts the search, anything still running for an older query stops
+		final int gen = generation.incrementAndGet();
+		this.query = query;
+		current = -1;
+		matches = new Matches(new long[0], 0);
+		highlight();
+		if (query.isEmpty())
+			return;
+		done = false;
+		final long limit = base + end;
+		final AbstractDocument doc = (AbstractDocument) text.getDocument();
+		worker().execute(new Runnable() {
+			public void run() {
+				long[] found = new long[16];
+				int count = 0;
+				final long[] position = {0};
+				final long[] chunkBase = new long[1];
+				final int[] chunkLength = new int[1];
+				final char[] chunk = new char[CHUNK];
+				final Segment segment = new Segment();
+				char first = query.charAt(0);
+				while (generation.get() == gen && position[0] < limit - query.length() + 1) {
+					doc.render(new Runnable() { //Read lock only for the copy, so the EDT is not held up
+						public void run() {
+							long b = base;
+							position[0] = Math.max(position[0], b);
+							int from = (int) (position[0] - b);
+							int length = (int) Math.min(CHUNK, Math.min(limit - b, doc.getLength()) - from);
+							chunkBase[0] = position[0];
+							chunkLength[0] = 0;
+							if (length <= 0)
+								return;
+							try {
+								doc.getText(from, length, segment);
+								System.arraycopy(segment.array, segment.offset, chunk, 0, segment.count);
+								chunkLength[0] = segment.count;
+							} catch (BadLocationException e) {}
+						}
+					});
+					int n = chunkLength[0];
+					if (n < query.length())
+						break;
+					for (int i = 0; i + query.length() <= n; i++) {
+						if (chunk[i] != first || !matchesAt(chunk, i, query))
+							continue;
+						if (count == found.length)
+							found = Arrays.copyOf(found, count * 2);
+						found[count++] = chunkBase[0] + i;
+					}
+					position[0] = chunkBase[0] + n - query.length() + 1; //Overlap catches matches across chunks
+					if (generation.get() == gen) {
+						matches = new Matches(found, count);
+						refresh();
+					}
+				}
+				if (generation.get() == gen) {
+					done = true;
+					refresh();
+				}
+			}
+		});
+	}
+	
+	private static boolean matchesAt(char[] chunk, int i, String query) {
+		for (int j = 1; j < query.length(); j++)
+			if (chunk[i + j] != query.charAt(j))
+				return false;
+		return true;
+	}
+	
+	private void refresh() { //Coalesces highlight updates from the worker
+		if (refreshQueued.getAndSet(true))
+			return;
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				refreshQueued.set(false);
+				highlight();
+			}
+		});
+	}
+	
+	private int firstAtOrAfter(Matches m, long offset) {
+		int i = Arrays.binarySearch(m.offsets, 0, m.count, offset);
+		return i >= 0 ? i : -i - 1;
+	}
+	
+	@SuppressWarnings("deprecation")
+	void highlight() { //EDT, only the matches inside the viewport get highlight tags
+		Highlighter h = text.getHighlighter();
+		for (Object tag : tags)
+			h.removeHighlight(tag);
+		tags = new Object[0];
+		Matches m = matches;
+		if (m.count == 0)
+			return;
+		Rectangle visible = text.getVisibleRect();
+		long b = base;
+		int p0 = text.viewToModel(visible.getLocation());
+		int p1 = text.viewToModel(new Point(visible.x + visible.width, visible.y + visible.height));
+		int length = text.getDocument().getLength();
+		Object[] added = new Object[MAX_HIGHLIGHTS];
+		int n = 0;
+		for (int i = firstAtOrAfter(m, b + p0 - query.length()); i < m.count && m.offsets[i] <= b + p1 && n < added.length; i++) {
+			int start = (int) (m.offsets[i] - b);
+			if (start < 0 || start + query.length() > length)
+				continue;
+			try {
+				added[n++] = h.addHighlight(start, start + query.length(), painter);
+			} catch (BadLocationException e) {
+				n--;
+			}
+		}
+		tags = Arrays.copyOf(added, n);
+	}
+	
+	@SuppressWarnings("deprecation")
+	int next(boolean forward) { //Selects the next or previous match, returns its document offset or -1
+		Matches m = matches;
+		long b = base;
+		if (m.count == 0)
+			return -1;
+		int i;
+		if (forward)
+			i = firstAtOrAfter(m, current < 0 ? b : current + 1);
+		else
+			i = (current < 0 ? m.count : firstAtOrAfter(m, current)) - 1;
+		if (i < 0 || i >= m.count || m.offsets[i] < b) //Nothing further that way, stay put
+			return current >= b ? (int) (current - b) : -1;
+		current = m.offsets[i];
+		int start = (int) (current - b);
+		try {
+			Rectangle r = text.modelToView(start);
+			if (r != null)
+				text.scrollRectToVisible(r);
+		} catch (BadLocationException e) {}
+		text.select(start, start + query.length());
+		return start;
+	}
+	
+	void clear() {
+		search("", 0);
+	}
+	
+	int getCount() { return matches.count; }
+	boolean isDone() { return done; }
+	String getQuery() { return query; }
+}
@@ -0,0 +1,5 @@
+package zach.jconsole;
+
+public interface StreamAction { //Action that reads and writes lines, so it can sit anywhere in a pipeline
+	public void perform(JConsole console, String[] args, Pipe in, Pipe out);
+}
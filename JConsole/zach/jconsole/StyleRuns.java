@@ -0,0 +1,166 @@
+package zach.jconsole;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+class StyleRuns { //Run-length styles of the document, filled by stripping SGR sequences from printed text, EDT only
+	//A style is one int: fg palette index + 1 in bits 0-8, bg in bits 9-17, then bold and underline, 0 is the default look
+	//Runs start at absolute offsets (document offset + chars evicted so far), so eviction only moves base
+	
+	static final int BOLD = 1 << 18, UNDERLINE = 1 << 19;
+	private static final char ESC = '\u001b';
+	private static final int TEXT = 0, ESCAPE = 1, CSI = 2;
+	
+	private long[] starts = new long[64];
+	private int[] styles = new int[64];
+	private int head; //First live run
+	private int count;
+	private long base;
+	
+	private int style; //Style of the next printed char
+	private int state = TEXT; //Escape sequences can be split over prints
+	private final StringBuilder params = new StringBuilder();
+	
+	String append(String text, int offset) { //Strips escape sequences from text about to be inserted at offset
+		if (state == TEXT && text.indexOf(ESC) < 0)
+			return text; //Plain text just extends the last run
+		StringBuilder plain = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (state) {
+			case TEXT:
+				if (c == ESC)
+					state = ESCAPE;
+				else
+					plain.append(c);
+				break;
+			case ESCAPE:
+				state = c == '[' ? CSI : TEXT; //Other escapes are dropped with their one char
+				params.setLength(0);
+				break;
+			default:
+				if (c >= 0x40 && c <= 0x7E) {
+					state = TEXT;
+					if (c == 'm') {
+						select(params);
+						mark(offset + plain.length());
+					}
+				} else if (params.length() < 64)
+					params.append(c);
+			}
+		}
+		return plain.toString();
+	}
+	
+	private void select(CharSequence sgr) {
+		int[] codes = new int[16];
+		int n = 0, value = -1;
+		for (int i = 0; i <= sgr.length(); i++) {
+			char c = i < sgr.length() ? sgr.charAt(i) : ';';
+			if (c >= '0' && c <= '9')
+				value = Math.max(value, 0) * 10 + c - '0';
+			else if (c == ';' || c == ':') {
+				if (n == codes.length)
+					break;
+				codes[n++] = Math.max(value, 0); //Empty means 0
+				value = -1;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			int code = codes[i];
+			if (code == 0)
+				style = 0;
+			else if (code == 1)
+				style |= BOLD;
+			else if (code == 22)
+				style &= ~BOLD;
+			else if (code == 4)
+				style |= UNDERLINE;
+			else if (code == 24)
+				style &= ~UNDERLINE;
+			else if (code >= 30 && code <= 37)
+				style = fg(style, code - 30 + 1);
+			else if (code >= 90 && code <= 97)
+				style = fg(style, code - 90 + 9);
+			else if (code == 39)
+				style = fg(style, 0);
+			else if (code >= 40 && code <= 47)
+				style = bg(style, code - 40 + 1);
+			else if (code >= 100 && code <= 107)
+				style = bg(style, code - 100 + 9);
+			else if (code == 49)
+				style = bg(style, 0);
+			else if ((code == 38 || code == 48) && i + 1 < n) {
+				int color = -1;
+				if (codes[i + 1] == 5 && i + 2 < n) {
+					color = Math.min(codes[i + 2], 255);
+					i += 2;
+				} else if (codes[i + 1] == 2 && i + 4 < n) {
+					color = Ansi.nearest(codes[i + 2], codes[i + 3], codes[i + 4]);
+					i += 4;
+				}
+				if (color >= 0)
+					style = code == 38 ? fg(style, color + 1) : bg(style, color + 1);
+			}
+		}
+	}
+	
+	private static int fg(int style, int color) { return (style & ~0x1FF) | color & 0x1FF; }
+	private static int bg(int style, int color) { return (style & ~(0x1FF << 9)) | (color & 0x1FF) << 9; }
+	
+	private void mark(int offset) { //The current style starts at offset
+		long start = base + offset;
+		if (count > head && starts[count - 1] == start)
+			count--; //Nothing was printed in the previous style
+		if (count > head ? styles[count - 1] == style : style == 0)
+			return;
+		if (count == starts.length) {
+			if (head > count / 2) { //Mostly evicted runs, compact instead of growing
+				System.arraycopy(starts, head, starts, 0, count - head);
+				System.arraycopy(styles, head, styles, 0, count - head);
+				count -= head;
+				head = 0;
+			} else {
+				starts = Arrays.copyOf(starts, count * 2);
+				styles = Arrays.copyOf(styles, count * 2);
+			}
+		}
+		starts[count] = start;
+		styles[count++] = style;
+	}
+	
+	void evict(int length) { //The first length chars were removed from the document
+		base += length;
+		while (head + 1 < count && starts[head + 1] <= base)
+			head++;
+	}
+	
+	void clear() { //The document was emptied, the current style carries on
+		head = count = 0;
+		base = 0;
+		if (style != 0)
+			mark(0);
+	}
+	
+	boolean isEmpty() { return count == head; }
+	
+	int indexAt(int offset) { //Run covering the document offset, head - 1 if it is before every run
+		int i = Arrays.binarySearch(starts, head, count, base + offset);
+		return i >= 0 ? i : -i - 2;
+	}
+	int style(int i) { return i >= head ? styles[i] : 0; }
+	int end(int i) { return i + 1 < count ? (int) Math.max(0, starts[i + 1] - base) : Integer.MAX_VALUE; } //Document offset where run i stops
+	
+	static Color foreground(int style, Color normal) {
+		int color = style & 0x1FF;
+		if (color == 0)
+			return normal;
+		if ((style & BOLD) != 0 && color <= 8) //Bold shows as the bright variant
+			color += 8;
+		return Ansi.color(color - 1);
+	}
+	static Color background(int style) { //null for the default
+		int color = style >> 9 & 0x1FF;
+		return color == 0 ? null : Ansi.color(color - 1);
+	}
+}
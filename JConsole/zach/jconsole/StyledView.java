@@ -0,0 +1,56 @@
+package zach.jconsole;
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.PlainView;
+import javax.swing.text.Segment;
+import javax.swing.text.Utilities;
+
+class StyledView extends PlainView { //Paints the text run by run in the colors printed with it
+	
+	protected final StyleRuns styles;
+	protected Segment line = new Segment();
+	
+	StyledView(Element elem, StyleRuns styles) {
+		super(elem);
+		this.styles = styles;
+	}
+	
+	@SuppressWarnings("deprecation")
+	protected int drawUnselectedText(Graphics g, int x, int y, int p0, int p1) throws BadLocationException {
+		JTextComponent host = (JTextComponent) getContainer();
+		Color normal = host.isEnabled() ? host.getForeground() : host.getDisabledTextColor();
+		if (styles.isEmpty())
+			return drawRun(g, x, y, p0, p1, normal);
+		for (int i = styles.indexAt(p0); p0 < p1; i++) {
+			int end = Math.min(p1, styles.end(i));
+			if (end <= p0)
+				continue;
+			int style = styles.style(i), start = x;
+			Color bg = StyleRuns.background(style);
+			if (bg != null) {
+				FontMetrics fm = g.getFontMetrics();
+				getDocument().getText(p0, end - p0, line);
+				g.setColor(bg);
+				g.fillRect(x, y - fm.getAscent(), Utilities.getTabbedTextWidth(line, fm, x, this, p0), fm.getHeight());
+			}
+			x = drawRun(g, x, y, p0, end, StyleRuns.foreground(style, normal));
+			if ((style & StyleRuns.UNDERLINE) != 0)
+				g.drawLine(start, y + 1, x - 1, y + 1);
+			p0 = end;
+		}
+		return x;
+	}
+	
+	@SuppressWarnings("deprecation")
+	protected int drawRun(Graphics g, int x, int y, int p0, int p1, Color fg) throws BadLocationException { //One style, y is the baseline
+		getDocument().getText(p0, p1 - p0, line);
+		g.setColor(fg);
+		return Utilities.drawTabbedText(line, x, y, g, this, p0);
+	}
+}
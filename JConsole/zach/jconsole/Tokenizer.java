@@ -0,0 +1,96 @@
+package zach.jconsole;
+
+import java.nio.CharBuffer;
+
+public class Tokenizer { //Single pass command line splitter, buffers are reused between lines so keep one per thread
+	//Tokens are separated by spaces or tabs, "double quotes" allow \ escapes, 'single quotes' are literal
+	//Unquoted | > and >> are operator tokens of their own, even without spaces around them
+	
+	private char[] chars = new char[128]; //Unescaped token text, back to back
+	private int[] bounds = new int[32]; //start, end pairs into chars
+	private boolean[] operator = new boolean[16];
+	private int count;
+	private int operators;
+	
+	public int parse(CharSequence line) { //Returns the number of tokens
+		if (chars.length < line.length())
+			chars = new char[Math.max(line.length(), chars.length * 2)];
+		count = 0;
+		operators = 0;
+		int length = 0, start = 0;
+		boolean inToken = false;
+		char quote = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quote == 0 && (c == ' ' || c == '\t')) {
+				if (inToken)
+					end(start, length);
+				inToken = false;
+				continue;
+			}
+			if (quote == 0 && (c == '|' || c == '>')) {
+				if (inToken)
+					end(start, length);
+				inToken = false;
+				start = length;
+				chars[length++] = c;
+				if (c == '>' && i + 1 < line.length() && line.charAt(i + 1) == '>')
+					chars[length++] = line.charAt(++i);
+				end(start, length);
+				operator[count - 1] = true;
+				operators++;
+				continue;
+			}
+			if (!inToken) {
+				inToken = true;
+				start = length;
+			}
+			if (c == '\\' && quote != '\'' && i + 1 < line.length())
+				chars[length++] = line.charAt(++i);
+			else if (c == quote)
+				quote = 0;
+			else if (quote == 0 && (c == '"' || c == '\''))
+				quote = c;
+			else
+				chars[length++] = c;
+		}
+		if (inToken)
+			end(start, length);
+		return count;
+	}
+	
+	private void end(int start, int end) {
+		if (count * 2 == bounds.length) {
+			int[] grown = new int[bounds.length * 2];
+			System.arraycopy(bounds, 0, grown, 0, bounds.length);
+			bounds = grown;
+			boolean[] flags = new boolean[operator.length * 2];
+			System.arraycopy(operator, 0, flags, 0, operator.length);
+			operator = flags;
+		}
+		bounds[count * 2] = start;
+		bounds[count * 2 + 1] = end;
+		operator[count] = false;
+		count++;
+	}
+	
+	public int count() { return count; }
+	public int operators() { return operators; }
+	public boolean isOperator(int i) { return operator[i]; } //Unquoted | > or >>
+	public int start(int i) { return bounds[i * 2]; }
+	public int length(int i) { return bounds[i * 2 + 1] - bounds[i * 2]; }
+	public char[] buffer() { return chars; } //Shared, only valid until the next parse
+	
+	public CharSequence token(int i) { //View over the buffer, no copy
+		return CharBuffer.wrap(chars, start(i), length(i));
+	}
+	public String get(int i) {
+		return new String(chars, start(i), length(i));
+	}
+	public String[] toArray() {
+		String[] args = new String[count];
+		for (int i = 0; i < count; i++)
+			args[i] = get(i);
+		return args;
+	}
+}
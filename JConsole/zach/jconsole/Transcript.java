@@ -0,0 +1,248 @@
+package zach.jconsole;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Transcript implements Closeable { //Append-only UTF-8 log of a console split over memory-mapped segment files
+	//A segment file is its text, a zero filled tail and an 8 byte trailer with the text length, written when the segment is closed.
+	//Files are never truncated while mapped, which Windows does not allow; a trailer left at 0 by a crash means scan for the end
+	
+	public static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+	public static final int DEFAULT_MAX_SEGMENTS = 8;
+	private static final String PREFIX = "transcript.";
+	private static final int TRAILER = 8;
+	
+	private static class Segment {
+		private final File file;
+		private long length;
+		private Segment(File file, long length) {
+			this.file = file;
+			this.length = length;
+		}
+	}
+	
+	private final File dir;
+	private final int segmentSize;
+	private final int maxSegments;
+	private final List<Segment> segments = new ArrayList<Segment>(); //Oldest first, the last one is mapped
+	private final List<File> undeleted = new ArrayList<File>(); //Dropped segments still mapped somewhere, tried again on rotation
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private char pending; //High surrogate that ended the last append, encoded with the char after it
+	private int nextIndex;
+	private RandomAccessFile file;
+	private MappedByteBuffer mapped;
+	private IOException error; //Last failure, recording stops if it was while opening a segment
+	
+	public Transcript(File dir) throws IOException {
+		this(dir, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+	}
+	public Transcript(File dir, int segmentSize, int maxSegments) throws IOException { //Continues an existing transcript in dir
+		this.dir = dir;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Cannot create " + dir);
+		File[] files = dir.listFiles();
+		Arrays.sort(files);
+		for (File f : files) {
+			if (!f.getName().startsWith(PREFIX))
+				continue;
+			int index;
+			try {
+				index = Integer.parseInt(f.getName().substring(PREFIX.length()));
+			} catch (NumberFormatException e) { //Not a segment, like a transcript.bak
+				continue;
+			}
+			segments.add(new Segment(f, usedLength(f)));
+			nextIndex = Math.max(nextIndex, index + 1);
+		}
+		if (segments.isEmpty())
+			openSegment();
+		else {
+			Segment last = segments.get(segments.size() - 1);
+			map(last, Math.max(last.file.length() - TRAILER, last.length));
+		}
+	}
+	
+	public synchronized void append(CharSequence text) { //Hot path, encodes straight into the mapped segment
+		if (mapped == null)
+			return;
+		CharBuffer chars = pending == 0 ? CharBuffer.wrap(text) : CharBuffer.wrap(pending + text.toString());
+		pending = 0;
+		while (true) {
+			CoderResult result = encoder.encode(chars, mapped, false);
+			if (!result.isOverflow())
+				break;
+			segments.get(segments.size() - 1).length = mapped.position(); //What fit stays in the segment being closed
+			try {
+				rotate();
+			} catch (IOException e) {
+				e.printStackTrace();
+				error = e;
+				mapped = null;
+				return;
+			}
+		}
+		if (chars.hasRemaining()) //Only a high surrogate is left unencoded, its low half comes with the next append
+			pending = chars.get();
+		segments.get(segments.size() - 1).length = mapped.position();
+	}
+	
+	private void rotate() throws IOException {
+		closeSegment();
+		openSegment();
+		while (segments.size() > maxSegments)
+			undeleted.add(segments.remove(0).file);
+		for (int i = undeleted.size() - 1; i >= 0; i--)
+			try {
+				Files.deleteIfExists(undeleted.get(i).toPath());
+				undeleted.remove(i);
+			} catch (IOException e) { //Its old mapping is only released by the GC
+				error = e;
+			}
+	}
+	
+	private void openSegment() throws IOException {
+		Segment s = new Segment(new File(dir, PREFIX + String.format("%06d", nextIndex++)), 0);
+		segments.add(s);
+		map(s, segmentSize);
+	}
+	
+	private void map(Segment s, long capacity) throws IOException {
+		file = new RandomAccessFile(s.file, "rw");
+		mapped = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity + TRAILER);
+		mapped.putLong((int) capacity, 0); //Open again, the text may grow past the last trailer
+		mapped.limit((int) capacity).position((int) s.length);
+	}
+	
+	private void closeSegment() throws IOException {
+		if (pending != 0) { //Nothing will follow, the lone surrogate becomes a replacement
+			encoder.encode(CharBuffer.wrap(new char[] {pending}), mapped, true);
+			encoder.reset();
+			pending = 0;
+			segments.get(segments.size() - 1).length = mapped.position();
+		}
+		mapped.limit(mapped.capacity());
+		mapped.putLong(mapped.capacity() - TRAILER, segments.get(segments.size() - 1).length);
+		mapped.force();
+		mapped = null;
+		file.close();
+	}
+	
+	private static long usedLength(File f) throws IOException { //From the trailer, or the last non-zero byte if there is none
+		try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+			FileChannel ch = raf.getChannel();
+			if (ch.size() < TRAILER)
+				return 0;
+			ByteBuffer buf = ByteBuffer.allocate(64 << 10);
+			buf.limit(TRAILER);
+			ch.read(buf, ch.size() - TRAILER);
+			long length = buf.getLong(0);
+			if (length > 0 && length <= ch.size() - TRAILER)
+				return length;
+			for (long end = ch.size() - TRAILER; end > 0; ) {
+				long start = Math.max(0, end - buf.capacity());
+				buf.clear().limit((int) (end - start));
+				ch.read(buf, start);
+				for (int i = (int) (end - start) - 1; i >= 0; i--)
+					if (buf.get(i) != 0)
+						return start + i + 1;
+				end = start;
+			}
+			return 0;
+		}
+	}
+	
+	public synchronized long length() {
+		long length = 0;
+		for (Segment s : segments)
+			length += s.length;
+		return length;
+	}
+	
+	public synchronized String tail(int lines, int skip) { //Reads only the requested lines, counting back from the end
+		long end = length(), position = end, start = -1;
+		int newlines = 0;
+		ByteBuffer buf = ByteBuffer.allocate(64 << 10);
+		try {
+			while (position > 0 && start < 0) {
+				int n = (int) Math.min(buf.capacity(), position);
+				buf.clear().limit(n);
+				read(position - n, buf);
+				for (int i = n - 1; i >= 0; i--)
+					if (buf.get(i) == '\n') {
+						newlines++;
+						if (newlines == skip)
+							end = position - n + i;
+						if (newlines == skip + lines) {
+							start = position - n + i + 1;
+							break;
+						}
+					}
+				position -= n;
+			}
+			if (start < 0)
+				start = 0;
+			if (end <= start)
+				return "";
+			ByteBuffer text = ByteBuffer.allocate((int) (end - start));
+			read(start, text);
+			text.flip();
+			return StandardCharsets.UTF_8.decode(text).toString();
+		} catch (IOException e) {
+			return "";
+		}
+	}
+	
+	private void read(long position, ByteBuffer dst) throws IOException { //Fills dst from the logical offset, across segments
+		for (Segment s : segments) {
+			if (position >= s.length) {
+				position -= s.length;
+				continue;
+			}
+			if (s == segments.get(segments.size() - 1) && mapped != null) {
+				ByteBuffer view = mapped.duplicate();
+				view.position((int) position).limit((int) Math.min(s.length, position + dst.remaining()));
+				position += view.remaining();
+				dst.put(view);
+			} else
+				try (RandomAccessFile raf = new RandomAccessFile(s.file, "r")) {
+					int limit = dst.limit();
+					dst.limit(dst.position() + (int) Math.min(dst.remaining(), s.length - position));
+					while (dst.hasRemaining()) {
+						int n = raf.getChannel().read(dst, position);
+						if (n < 0)
+							break;
+						position += n;
+					}
+					dst.limit(limit);
+				}
+			if (!dst.hasRemaining())
+				return;
+			position = 0;
+		}
+	}
+	
+	public synchronized IOException getError() { return error; }
+	
+	public synchronized void close() throws IOException {
+		if (mapped != null)
+			closeSegment();
+	}
+}
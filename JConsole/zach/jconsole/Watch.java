@@ -0,0 +1,149 @@
+package zach.jconsole;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Watch implements Runnable { //Command re-run at a fixed interval, each run's output takes the place of the last
+	//Watches share the scheduler thread of command timeouts, which only starts runs on the console's executor. A run still going
+	//when the next is due is skipped instead of queued, and output equal to the previous run's is dropped before the front end
+	
+	static final int MAX_LINES = 20; //Output lines kept per run, the rest is cut
+	
+	private final int id;
+	private final JConsole console;
+	private final String[] args;
+	private final long interval;
+	private final Frame frame = new Frame();
+	private final JConsole session; //Prints into frame
+	private final AtomicBoolean running = new AtomicBoolean();
+	private final Runnable done = new Runnable() {
+		public void run() {
+			done();
+		}
+	};
+	private final String header;
+	private String shown; //Output of the last run that changed, guarded by frame
+	private ScheduledFuture<?> future;
+	private volatile CommandHandle handle;
+	private volatile boolean cancelled;
+	
+	Watch(int id, JConsole console, String[] args, long intervalMillis) {
+		this.id = id;
+		this.console = console;
+		this.args = args;
+		this.interval = intervalMillis;
+		session = new JConsole(frame, console);
+		session.watching = this;
+		session.parent = console;
+		StringBuilder s = new StringBuilder("#").append(id).append(" every ")
+				.append(interval % 1000 == 0 ? interval / 1000 + "s" : interval + "ms").append(':');
+		for (String arg : args)
+			s.append(' ').append(arg);
+		header = s.toString();
+	}
+	
+	synchronized void start() {
+		if (!cancelled)
+			future = CommandExecutor.scheduler().scheduleAtFixedRate(this, 0, interval, TimeUnit.MILLISECONDS);
+	}
+	synchronized void stop() {
+		cancelled = true;
+		if (future != null)
+			future.cancel(false);
+		CommandHandle h = handle;
+		if (h != null)
+			h.cancel();
+	}
+	
+	public void run() { //Scheduler thread, only hands the run to the executor so a slow command holds up no other watch
+		if (cancelled || !running.compareAndSet(false, true))
+			return;
+		Command c = console.getCommands().get(args[0], JConsole.PARSE_IGNORE_CAPS); //Looked up every run, replaceCommand takes effect
+		synchronized (frame) {
+			frame.reset();
+		}
+		if (c == null || c.isUICommand()) {
+			session.print("\n" + Ansi.style("\"" + args[0] + (c == null ? "\" is not recognized as a command" : "\" cannot be watched"), Ansi.RED));
+			done();
+			return;
+		}
+		try {
+			handle = console.getExecutor().submit(c, session, args);
+			handle.onDone(done);
+		} catch (RejectedExecutionException e) { //Executor shut down
+			running.set(false);
+			console.unwatch(this);
+		}
+	}
+	
+	private void done() { //Thread that finished the run
+		String text;
+		try {
+			synchronized (frame) {
+				if (shown != null && shown.contentEquals(frame.text)) //Unchanged output costs no allocation and nothing on the UI thread
+					return;
+				text = shown = frame.text.toString();
+			}
+			if (!cancelled)
+				console.showWatch(this, text);
+		} finally {
+			running.set(false);
+		}
+	}
+	
+	String[] lines(String text) { //Header and output lines, escapes stripped, for front ends that draw the text themselves
+		text = Ansi.strip(text);
+		int start = text.startsWith("\n") ? 1 : 0;
+		int count = 1;
+		for (int i = start; i < text.length(); i++)
+			if (text.charAt(i) == '\n')
+				count++;
+		boolean cut = count > MAX_LINES;
+		String[] lines = new String[text.length() > start ? Math.min(count, MAX_LINES) + 1 + (cut ? 1 : 0) : 1];
+		lines[0] = header;
+		for (int i = 1; i < lines.length - (cut ? 1 : 0); i++) {
+			int end = text.indexOf('\n', start);
+			if (end < 0)
+				end = text.length();
+			lines[i] = text.substring(start, end);
+			start = end + 1;
+		}
+		if (cut)
+			lines[lines.length - 1] = "...";
+		return lines;
+	}
+	
+	public void cancel() { console.unwatch(this); }
+	public boolean isCancelled() { return cancelled; }
+	public int getId() { return id; }
+	public String[] getArgs() { return args.clone(); }
+	public long getInterval() { return interval; }
+	public JConsole getConsole() { return console; }
+	
+	public String toString() { return header; }
+	
+	private static class Frame implements ConsoleView { //Collects one run's output, reused so a run allocates no new buffer
+		
+		private final StringBuilder text = new StringBuilder();
+		private int lines;
+		
+		void reset() {
+			text.setLength(0);
+			lines = 0;
+		}
+		
+		public synchronized void print(String s) { //Past MAX_LINES the output is dropped, one more line is kept to show the cut
+			for (int i = 0; i < s.length() && lines <= MAX_LINES + 1; i++) {
+				char c = s.charAt(i);
+				if (c == '\n' && ++lines > MAX_LINES + 1)
+					break;
+				text.append(c);
+			}
+		}
+		public synchronized void clear() { reset(); }
+		public void close() {}
+		public void invoke(Runnable r) { r.run(); }
+	}
+}
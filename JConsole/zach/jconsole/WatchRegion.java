@@ -0,0 +1,90 @@
+package zach.jconsole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JTextArea;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+
+class WatchRegion { //Latest output of every watch, one block of lines each, EDT only
+	//A new frame is diffed line by line against the block it replaces, so only the lines that changed are edited and repainted
+	
+	private final JTextArea area;
+	private final List<Watch> watches = new ArrayList<Watch>();
+	private final List<String[]> blocks = new ArrayList<String[]>(); //Lines shown per watch, never empty
+	
+	WatchRegion(JTextArea area) {
+		this.area = area;
+	}
+	
+	void show(Watch w, String[] lines) {
+		AbstractDocument doc = (AbstractDocument) area.getDocument();
+		Element root = doc.getDefaultRootElement();
+		int k = watches.indexOf(w);
+		try {
+			if (k < 0) { //New watches go below the others
+				doc.insertString(doc.getLength(), (watches.isEmpty() ? "" : "\n") + join(lines, 0), null);
+				watches.add(w);
+				blocks.add(lines);
+				return;
+			}
+			String[] old = blocks.get(k);
+			int first = firstLine(k);
+			for (int i = 0, n = Math.min(old.length, lines.length); i < n; i++)
+				if (!old[i].equals(lines[i])) {
+					Element line = root.getElement(first + i);
+					doc.replace(line.getStartOffset(), line.getEndOffset() - 1 - line.getStartOffset(), lines[i], null);
+				}
+			int end = root.getElement(first + Math.min(old.length, lines.length) - 1).getEndOffset() - 1;
+			if (lines.length > old.length)
+				doc.insertString(end, "\n" + join(lines, old.length), null);
+			else if (lines.length < old.length)
+				doc.remove(end, root.getElement(first + old.length - 1).getEndOffset() - 1 - end);
+			blocks.set(k, lines);
+		} catch (BadLocationException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	void remove(Watch w) {
+		int k = watches.indexOf(w);
+		if (k < 0)
+			return;
+		AbstractDocument doc = (AbstractDocument) area.getDocument();
+		Element root = doc.getDefaultRootElement();
+		int first = firstLine(k), last = first + blocks.get(k).length - 1;
+		int from, to;
+		if (k > 0) { //With the '\n' before it
+			from = root.getElement(first - 1).getEndOffset() - 1;
+			to = root.getElement(last).getEndOffset() - 1;
+		} else { //With the '\n' after it, if another block follows
+			from = 0;
+			to = last + 1 < root.getElementCount() ? root.getElement(last + 1).getStartOffset() : doc.getLength();
+		}
+		try {
+			doc.remove(from, to - from);
+		} catch (BadLocationException e) {
+			e.printStackTrace();
+		}
+		watches.remove(k);
+		blocks.remove(k);
+	}
+	
+	boolean isEmpty() { return watches.isEmpty(); }
+	
+	private int firstLine(int k) {
+		int line = 0;
+		for (int i = 0; i < k; i++)
+			line += blocks.get(i).length;
+		return line;
+	}
+	
+	private static String join(String[] lines, int from) {
+		StringBuilder s = new StringBuilder();
+		for (int i = from; i < lines.length; i++)
+			s.append(i > from ? "\n" : "").append(lines[i]);
+		return s.toString();
+	}
+}
@@ -0,0 +1,29 @@
+package zach.jconsole;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+class Benchmarks { //Shared fixtures, every benchmark but StartupBenchmark forks with java.awt.headless=true
+	
+	static HeadlessView silentView() { //Output goes nowhere, so the terminal is not measured
+		return new HeadlessView(new PrintStream(new OutputStream() {
+			public void write(int b) {}
+			public void write(byte[] b, int off, int len) {}
+		}));
+	}
+	
+	static Command noOp(String name) { //UI command so execute runs it inline on the calling thread
+		return new Command(name, new Action() {
+			public void perform(JConsole console, String[] args) {}
+		}) {
+			public boolean isUICommand() { return true; }
+		};
+	}
+	
+	static String lines(int count) { //count lines of console like output
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < count; i++)
+			s.append("\n").append(i).append(": the quick brown fox jumps over the lazy dog");
+		return s.toString();
+	}
+}
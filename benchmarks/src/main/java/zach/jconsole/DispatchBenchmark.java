@@ -0,0 +1,60 @@
+package zach.jconsole;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class DispatchBenchmark { //Command.perform with two int arguments, parsed by hand against a bound @ConsoleCommand method
+	
+	private final String[] args = {"add", "17", "25"};
+	private JConsole console;
+	private Command handWritten;
+	private Command annotated;
+	private long sum;
+	
+	@Setup
+	public void setup() {
+		console = new JConsole(Benchmarks.silentView(), false);
+		handWritten = new Command("add", new Action() {
+			public void perform(JConsole console, String[] args) {
+				try {
+					sum += Integer.parseInt(args[1]) + Integer.parseInt(args[2]);
+				} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {}
+			}
+		});
+		annotated = CommandBinder.bind(this, MethodHandles.lookup()).get(0);
+	}
+	
+	@ConsoleCommand(help = "Adds two numbers")
+	private void add(@ConsoleCommand.Arg("a") int a, @ConsoleCommand.Arg("b") int b) {
+		sum += a + b;
+	}
+	
+	@Benchmark
+	public long handWritten() {
+		handWritten.perform(console, args);
+		return sum;
+	}
+	
+	@Benchmark
+	public long annotated() { //Arity check, converters and the method through the class LambdaMetafactory spun for it
+		annotated.perform(console, args);
+		return sum;
+	}
+}
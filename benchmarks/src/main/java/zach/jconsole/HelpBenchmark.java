@@ -0,0 +1,47 @@
+package zach.jconsole;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class HelpBenchmark { //The "?" listing of every registered command
+	
+	@Param({"100", "1000", "10000"})
+	public int commands;
+	
+	private JConsole console;
+	
+	@Setup
+	public void setup() {
+		console = new JConsole(Benchmarks.silentView(), false);
+		for (int i = 0; i < commands; i++)
+			console.addCommand(Benchmarks.noOp("command" + i));
+	}
+	
+	@TearDown
+	public void tearDown() {
+		console.getExecutor().shutdown();
+	}
+	
+	@Benchmark
+	public void help() throws InterruptedException {
+		console.execute("?").await();
+	}
+}
@@ -0,0 +1,69 @@
+package zach.jconsole;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JTextArea;
+import javax.swing.text.BadLocationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class InputLineBenchmark { //getLastLine and canBackSpace, checked on every key press
+	
+	@Param({"1000", "10000", "100000"})
+	public int lines;
+	
+	private JTextArea text;
+	private InputLine inputLine;
+	
+	@Setup
+	public void setup() {
+		text = new JTextArea();
+		inputLine = new InputLine();
+		text.getDocument().addDocumentListener(inputLine);
+		inputLine.setAppending(true);
+		text.append(Benchmarks.lines(lines) + "\n>");
+		inputLine.setAppending(false);
+		text.append("echo typed so far");
+		text.setCaretPosition(text.getDocument().getLength());
+	}
+	
+	@Benchmark
+	public boolean rescan() { //getLastLine and canBackSpace as they were, reading the whole text
+		int lastLine = text.getText().length();
+		for (int i = lastLine-1; i >= 0; i--)
+			if (text.getText().charAt(i) == '\n' || text.getText().charAt(i) == '>') {
+				lastLine = i+1;
+				break;
+			}
+		return text.getCaretPosition() >= lastLine && text.getText().charAt(text.getCaretPosition()-1) != '>';
+	}
+	
+	@Benchmark
+	public boolean tracked() {
+		return text.getCaretPosition() > inputLine.start();
+	}
+	
+	@Benchmark
+	public int keystroke() throws BadLocationException { //Typing and deleting a char, including the listener update
+		int end = text.getDocument().getLength();
+		text.getDocument().insertString(end, "x", null);
+		text.getDocument().remove(end, 1);
+		return inputLine.start();
+	}
+}
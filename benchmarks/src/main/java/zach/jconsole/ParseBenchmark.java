@@ -0,0 +1,77 @@
+package zach.jconsole;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ParseBenchmark { //parseCommand, the old split and trim against the Tokenizer and the whole execute path
+	
+	private static final String LONG = "10000 tokens"; //Stands for a generated line, too long to be a @Param
+	
+	@Param({"echo hello world", "  color   bg   #FF0000  ", "echo \"quoted text\" and 'literal text' with several more plain words", LONG})
+	public String line;
+	
+	private Tokenizer tokenizer;
+	private JConsole console;
+	
+	@Setup
+	public void setup() {
+		if (line.equals(LONG)) {
+			StringBuilder s = new StringBuilder("echo");
+			for (int i = 1; i < 10000; i++)
+				s.append(i % 10 == 0 ? " \"quoted " + i + "\"" : " word" + i);
+			line = s.toString();
+		}
+		tokenizer = new Tokenizer();
+		console = new JConsole(Benchmarks.silentView(), false);
+		console.addCommand(Benchmarks.noOp("echo"));
+		console.addCommand(Benchmarks.noOp("color"));
+	}
+	
+	@Benchmark
+	public String[] split() { //What parseCommand did before the Tokenizer
+		String trimmed = line.trim();
+		String[] args = trimmed.split(" ");
+		List<String> list = new LinkedList<String>(Arrays.asList(args));
+		for (int i = list.size()-1; i >= 0; i--) {
+			list.set(i, list.get(i).trim());
+			if (list.get(i).equalsIgnoreCase(""))
+				list.remove(i);
+		}
+		String lastCommand = "";
+		for (String s : list)
+			lastCommand += s + " ";
+		lastCommand = lastCommand.trim();
+		return list.toArray(new String[0]);
+	}
+	
+	@Benchmark
+	public String[] tokenizer() {
+		tokenizer.parse(line);
+		return tokenizer.toArray();
+	}
+	
+	@Benchmark
+	public CommandHandle execute() { //Parse, history, lookup and an inline no-op command
+		return console.execute(line);
+	}
+}
@@ -0,0 +1,75 @@
+package zach.jconsole;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JTextArea;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PrintBenchmark { //One printed line with lines of scrollback already in the text area
+	//The text area is reloaded every iteration, the old setText path keeps growing within one like it did in use
+	
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int lines;
+	
+	private static final String LINE = "\nprinted line with some ordinary output in it";
+	
+	private JTextArea text;
+	private Scrollback scrollback;
+	private StyleRuns styles;
+	private InputLine inputLine;
+	private JConsole console;
+	
+	@Setup(Level.Iteration)
+	public void setup() {
+		text = new JTextArea(Benchmarks.lines(lines));
+		scrollback = new Scrollback(lines, Integer.MAX_VALUE);
+		scrollback.appended(0, text.getText());
+		styles = new StyleRuns();
+		inputLine = new InputLine();
+		text.getDocument().addDocumentListener(inputLine);
+		console = new JConsole(new ConsoleView() { //The window's print on the EDT, straight to the same text area
+			public void print(String s) {
+				ConsoleWindow.append(text, styles, inputLine, scrollback, s);
+			}
+			public void clear() {}
+			public void close() {}
+			public void invoke(Runnable r) { r.run(); }
+		}, false);
+	}
+	
+	@Benchmark
+	public JTextArea setText() { //What print did before the window appended
+		text.setText(text.getText() + LINE);
+		return text;
+	}
+	
+	@Benchmark
+	public JTextArea append() { //ConsoleWindow.append at a full scrollback
+		ConsoleWindow.append(text, styles, inputLine, scrollback, LINE);
+		return text;
+	}
+	
+	@Benchmark
+	public JTextArea engine() { //JConsole.print down to the text area, without a transcript
+		console.print(LINE);
+		return text;
+	}
+}
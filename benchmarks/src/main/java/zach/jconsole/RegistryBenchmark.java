@@ -0,0 +1,75 @@
+package zach.jconsole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RegistryBenchmark { //Command lookup, the old commandsMap against the trie, and completion
+	
+	@Param({"16", "1024", "65536"})
+	public int commands;
+	
+	private Map<String, Command> commandsMap;
+	private CommandRegistry registry;
+	private String[] names;
+	private int next;
+	
+	@Setup
+	public void setup() {
+		commandsMap = new HashMap<String, Command>();
+		registry = new CommandRegistry();
+		Random random = new Random(42);
+		names = new String[commands];
+		for (int i = 0; i < commands; i++) {
+			names[i] = "cmd" + Integer.toString(random.nextInt(Integer.MAX_VALUE), 36);
+			Command c = Benchmarks.noOp(names[i]);
+			commandsMap.put(names[i], c);
+			registry.add(c);
+		}
+	}
+	
+	private String name() {
+		next = (next + 1) % names.length;
+		return names[next];
+	}
+	
+	@Benchmark
+	public Command hashMap() {
+		return commandsMap.get(name());
+	}
+	
+	@Benchmark
+	public Command trie() {
+		return registry.get(name(), false);
+	}
+	
+	@Benchmark
+	public Command trieIgnoreCase() {
+		return registry.get(name(), true);
+	}
+	
+	@Benchmark
+	public List<Command> complete() { //Tab on a name cut to its first four chars
+		return registry.complete(name().substring(0, 4), false, 50);
+	}
+}
@@ -0,0 +1,62 @@
+package zach.jconsole;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RegistryStressBenchmark { //Commands registered and removed while other threads dispatch, CommandRegistryTest checks the results
+	
+	@State(Scope.Group)
+	public static class Shared {
+		JConsole console;
+		final String[] args = {"command500", "with", "some", "args"};
+		
+		@Setup
+		public void setup() {
+			console = new JConsole(Benchmarks.silentView(), false);
+			for (int i = 0; i < 1000; i++)
+				console.addCommand(Benchmarks.noOp("command" + i));
+		}
+	}
+	
+	@State(Scope.Thread)
+	public static class Writer {
+		int next;
+	}
+	
+	@Benchmark
+	@Group("registry")
+	@GroupThreads(1)
+	public Command register(Shared shared, Writer writer) { //Adds one of 256 extra commands or removes it if it is there
+		String name = "extra" + (writer.next++ & 255);
+		Command old = shared.console.removeCommand(name);
+		if (old == null)
+			shared.console.addCommand(Benchmarks.noOp(name));
+		return old;
+	}
+	
+	@Benchmark
+	@Group("registry")
+	@GroupThreads(3)
+	public Command dispatch(Shared shared) { //Lookup and perform only, execute would also measure parsing and the history index
+		Command c = shared.console.getCommands().get("command500", JConsole.PARSE_IGNORE_CAPS);
+		c.perform(shared.console, shared.args);
+		return c;
+	}
+}
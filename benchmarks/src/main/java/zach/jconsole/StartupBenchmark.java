@@ -0,0 +1,65 @@
+package zach.jconsole;
+
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StartupBenchmark { //Constructor to first prompt, the only benchmark that needs a display (xvfb-run in CI)
+	//Without one it opens nothing and times nothing, so a default run of every benchmark does not fail on it
+	
+	private JConsole console;
+	
+	@Benchmark
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	@Fork(10)
+	public JConsole cold() throws Exception { //First window of a fresh JVM, toolkit start included
+		return open();
+	}
+	
+	@Benchmark
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 20)
+	@Fork(1)
+	public JConsole warm() throws Exception { //Another window in a process that already has one
+		return open();
+	}
+	
+	private JConsole open() throws Exception {
+		if (GraphicsEnvironment.isHeadless())
+			return null;
+		console = new JConsole("Startup", "Startup benchmark", true, false);
+		SwingUtilities.invokeAndWait(new Runnable() { //Prompt appended and the window shown
+			public void run() {}
+		});
+		return console;
+	}
+	
+	@TearDown(Level.Iteration)
+	public void close() throws Exception {
+		if (console == null)
+			return;
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				console.getView().close();
+			}
+		});
+		console.getExecutor().shutdown();
+	}
+}